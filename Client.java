@@ -0,0 +1,82 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * A lightweight client for Daemon that behaves like Main:
+ * the job is read from standard input (positional parameters, or a
+ * scenario file redirected in), and the output is written to standard output.
+ * If the daemon rejects the job, or the run fails partway, the error is
+ * written to standard error, and the client exits with status 1, as Main would.
+ * It never loads the simulator itself, so it starts quickly.
+ *
+ * <p>Usage: java Client [port] or java Client --unix PATH</p>
+ */
+class Client {
+    public static void main(String[] args) throws IOException {
+        SocketChannel daemon;
+        if (args.length >= 2 && args[0].equals("--unix")) {
+            daemon = SocketChannel.open(StandardProtocolFamily.UNIX);
+            daemon.connect(UnixDomainSocketAddress.of(Path.of(args[1])));
+        } else {
+            int port = args.length > 0 ? Integer.parseInt(args[0]) : Daemon.DEFAULT_PORT;
+            daemon = SocketChannel.open(
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        }
+
+        try (daemon) {
+            OutputStream toDaemon = Channels.newOutputStream(daemon);
+            System.in.transferTo(toDaemon);
+            toDaemon.flush();
+            daemon.shutdownOutput();
+
+            BufferedReader fromDaemon = new BufferedReader(new InputStreamReader(
+                        Channels.newInputStream(daemon), StandardCharsets.UTF_8));
+            String status = fromDaemon.readLine();
+            if (status == null) {
+                fail("the daemon closed the connection without replying");
+            } else if (!status.equals(Daemon.OK)) {
+                fail(status);
+            }
+
+            /** Each line is written once the next arrives, since the last one is the closing status. */
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            String line = fromDaemon.readLine();
+            for (String next; line != null && (next = fromDaemon.readLine()) != null; line = next) {
+                out.write(line);
+                out.write('\n');
+            }
+            out.flush();
+            if (line == null) {
+                fail("the daemon closed the connection before the job finished");
+            } else if (!line.equals(Daemon.OK)) {
+                fail(line);
+            }
+        }
+    }
+
+    /**
+     * Reports an error status line, or a broken reply, on standard error,
+     * and exits with status 1, as Main does.
+     * @param status The status line, or a description of what went wrong.
+     */
+    static void fail(String status) {
+        String prefix = Daemon.ERROR + " ";
+        System.err.println("Error: " + (status.startsWith(prefix)
+                    ? status.substring(prefix.length())
+                    : status));
+        System.exit(1);
+    }
+}
@@ -0,0 +1,265 @@
+import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import cs2030.simulator.Scenario;
+import cs2030.simulator.Simulator;
+
+/**
+ * A long-lived simulation server, so that short runs do not pay
+ * for JVM startup and JIT warm-up every time.
+ * Each connection carries one job: the client sends either the ten
+ * positional parameters that Main reads from standard input, or the
+ * contents of a scenario file, then closes its side of the connection.
+ *
+ * <p>Usage: java Daemon [port] or java Daemon --unix PATH</p>
+ *
+ * The daemon listens on localhost only, on port 2030 by default,
+ * or on a Unix domain socket. Connections are read and parsed concurrently,
+ * and jobs run on a pool of WORKERS threads that stay warm between jobs.
+ *
+ * <p>Every status line of a reply is either OK, or ERROR followed by a
+ * message on the same line. A rejected job gets a single ERROR line.
+ * An accepted job gets OK once its run starts, then exactly what Main would
+ * have printed to standard output, then a closing status line: OK if the run
+ * completed, or ERROR if it failed partway.</p>
+ *
+ * A run stops as soon as a write to its client fails, and is stopped after
+ * JOB_TIMEOUT seconds, so that a client that goes away or stops reading
+ * holds up one worker for a bounded time, and never the jobs of others.
+ */
+class Daemon {
+    /** The default TCP port, on the loopback interface. */
+    static final int DEFAULT_PORT = 2030;
+
+    /** The largest job accepted, in bytes. Scenario files are far smaller. */
+    static final int MAX_JOB = 1 << 20;
+
+    /** The most customers a job may simulate. */
+    static final int MAX_CUSTOMERS = 10_000_000;
+
+    /** The longest a job may run, in seconds, including time spent blocked on its client. */
+    static final long JOB_TIMEOUT = 60;
+
+    /**
+     * The number of jobs that run at once. Workers blocked on slow clients
+     * use no CPU, so there are a few even on a single processor.
+     */
+    static final int WORKERS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    /** The status line that opens an accepted job, and closes a completed one. */
+    static final String OK = "ok";
+
+    /** The start of a status line that reports an error, followed by a space and the message. */
+    static final String ERROR = "error";
+
+    public static void main(String[] args) throws IOException {
+        ServerSocketChannel server;
+        if (args.length >= 2 && args[0].equals("--unix")) {
+            Path path = Path.of(args[1]);
+            Files.deleteIfExists(path);
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            server.bind(UnixDomainSocketAddress.of(path));
+        } else {
+            int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+            server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(WORKERS);
+        ExecutorService connections = Executors.newCachedThreadPool();
+        ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor();
+        workers.submit(Daemon::warmUp);
+        System.err.println("Daemon listening on " + server.getLocalAddress());
+
+        while (true) {
+            SocketChannel client = server.accept();
+            connections.submit(() -> serve(client, workers, watchdog));
+        }
+    }
+
+    /** Runs a few small simulations so that the JIT has compiled the engine. */
+    static void warmUp() {
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        Simulator simulator = new Simulator(
+                Scenario.of(1, 3, 2, 2, 2000, 2.0, 1.0, 0.1, 0.2, 0.5));
+        for (int i = 0; i < 20; i++) {
+            simulator.run(discard);
+        }
+    }
+
+    /**
+     * Reads and parses one job from a connection, and hands it to a worker,
+     * which replies and closes the connection. A job that cannot be read
+     * or parsed is answered here instead.
+     * @param client The connection to serve.
+     * @param workers The threads that run simulations.
+     * @param watchdog The thread that stops jobs that run for too long.
+     */
+    static void serve(SocketChannel client, ExecutorService workers,
+            ScheduledExecutorService watchdog) {
+        PrintStream out = new PrintStream(new BufferedOutputStream(
+                    failFast(Channels.newOutputStream(client))), false, StandardCharsets.UTF_8);
+        String error;
+        try {
+            Scenario scenario = parseJob(readJob(Channels.newInputStream(client)));
+            workers.submit(() -> runJob(client, out, scenario, watchdog));
+            return;
+        } catch (IllegalArgumentException e) {
+            error = "invalid job: " + e.getMessage();
+        } catch (NoSuchElementException e) {
+            error = "invalid job: expected ten positional parameters";
+        } catch (IOException e) {
+            error = "cannot read job: " + e.getMessage();
+        }
+        try (client; out) {
+            out.println(ERROR + " " + error);
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Error: cannot reply to client: " + e);
+        }
+    }
+
+    /**
+     * Runs one job on the current worker, streaming its output to the client
+     * between two status lines, and closes the connection.
+     * @param client The connection the job came from.
+     * @param out The stream to the client, which throws on a failed write.
+     * @param scenario The Scenario to run.
+     * @param watchdog The thread that stops the job after JOB_TIMEOUT seconds.
+     */
+    static void runJob(SocketChannel client, PrintStream out, Scenario scenario,
+            ScheduledExecutorService watchdog) {
+        /**
+         * The watchdog interrupts the worker only while this job holds it,
+         * so that a late timeout cannot stop the next job on the same thread.
+         */
+        Thread worker = Thread.currentThread();
+        boolean[] running = {true};
+        ScheduledFuture<?> timeout = watchdog.schedule(() -> {
+            synchronized (running) {
+                if (running[0]) {
+                    worker.interrupt();
+                }
+            }
+        }, JOB_TIMEOUT, TimeUnit.SECONDS);
+        try (client; out) {
+            out.println(OK);
+            try {
+                new Simulator(scenario).run(out);
+                out.println(OK);
+            } catch (CancellationException e) {
+                /** Cleared first, since writing to a channel on an interrupted thread closes it. */
+                Thread.interrupted();
+                out.println(ERROR + " job stopped after " + JOB_TIMEOUT + " s");
+            } catch (UncheckedIOException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                out.println(ERROR + " job failed: " + e);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            /** The client went away or stopped reading, so the job stops here. */
+            System.err.println("Error: job abandoned: " + e.getMessage());
+        } finally {
+            timeout.cancel(false);
+            synchronized (running) {
+                running[0] = false;
+            }
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * Wraps a stream so that a failed write throws UncheckedIOException,
+     * which PrintStream passes on instead of swallowing, so that the run
+     * writing to a client that has gone away stops at once.
+     */
+    static OutputStream failFast(OutputStream out) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) {
+                this.write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                try {
+                    out.write(b, off, len);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public void flush() {
+                try {
+                    out.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                out.close();
+            }
+        };
+    }
+
+    /** Reads a whole job, up to MAX_JOB bytes, until the client closes its side. */
+    static String readJob(InputStream in) throws IOException {
+        ByteArrayOutputStream job = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) >= 0) {
+            job.write(buffer, 0, n);
+            if (job.size() > MAX_JOB) {
+                throw new IllegalArgumentException("job is larger than " + MAX_JOB + " bytes");
+            }
+        }
+        return job.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses a job into a Scenario.
+     * A job made up only of numbers is read as Main's positional input;
+     * anything else is read as a scenario file.
+     * Summaries are streamed back like the rest of the output, since
+     * a client must not be able to make the daemon write to its files,
+     * and jobs larger than MAX_CUSTOMERS are rejected.
+     */
+    static Scenario parseJob(String job) throws IOException {
+        Scenario scenario = job.matches("[\\s0-9.eE+-]*")
+            ? Main.readScenario(new Scanner(job))
+            : Scenario.parse(new StringReader(job));
+        if (scenario.get_summaryFile() != null) {
+            throw new IllegalArgumentException("output.summary.file is not allowed in daemon jobs");
+        }
+        if (scenario.get_nCustomers() > MAX_CUSTOMERS) {
+            throw new IllegalArgumentException("daemon jobs may simulate at most "
+                    + MAX_CUSTOMERS + " customers, not " + scenario.get_nCustomers());
+        }
+        return scenario;
+    }
+}
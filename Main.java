@@ -1,26 +1,130 @@
+import java.util.NoSuchElementException;
 import java.util.Scanner;
-import java.util.PriorityQueue;
-import java.util.Comparator;
-import java.util.List;
-import java.util.ArrayList;
-import java.lang.Math;
-import java.util.stream.Stream;
-import java.util.Optional;
-import cs2030.simulator.RandomGenerator;
-import cs2030.simulator.Customer;
-import cs2030.simulator.Action;
-import cs2030.simulator.Server;
-import cs2030.simulator.Event;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import cs2030.simulator.ArrivalRing;
+import cs2030.simulator.Estimate;
+import cs2030.simulator.RoutingPolicy;
+import cs2030.simulator.Scenario;
+import cs2030.simulator.Simulator;
+import cs2030.simulator.Splitting;
+import cs2030.simulator.Statistics;
 
 class Main {
-    /** converts a double to a String representation with 3 decimal places. */
-    public static String fdouble(double d) {
-        return String.format("%.3f", d);
+    /**
+     * Runs a simulation.
+     * With no arguments, the ten positional parameters are read from
+     * standard input, in the order described in the README.
+     * With one argument, the Scenario is loaded from the given scenario file.
+     * If the first argument is --compare, the Scenario is run once under
+     * every RoutingPolicy, and a table comparing them is printed instead.
+     * If the first argument is --estimate, the Scenario is not simulated,
+     * and its analytical Estimate is printed instead.
+     * If the first argument is --split, the probability that a customer balks
+     * is estimated by importance Splitting, which is practical even when
+     * balking is far too rare for a plain run to observe.
+     * If the first argument is --live, the Scenario, which must then be given
+     * as a file, is run live: every line read from standard input is a customer
+     * arriving, at the time given on the line, or as soon as it is read if
+     * the line is empty; the run ends at the end of the input.
+     */
+    public static void main(String[] args) throws IOException {
+        String mode = args.length > 0 && args[0].startsWith("--") ? args[0] : "";
+        int first = mode.isEmpty() ? 0 : 1;
+
+        /** Checked before loading, so that the arrivals on standard input are left unread. */
+        if (mode.equals("--live") && args.length <= first) {
+            System.err.println("Error: --live needs a scenario file, since arrivals are read from standard input");
+            System.exit(1);
+            return;
+        }
+
+        /** Every way of failing to get a Scenario ends in one line on standard error. */
+        String source = args.length > first ? args[first] : "on standard input";
+        Scenario scenario;
+        try {
+            scenario = args.length > first
+                ? Scenario.load(Path.of(args[first]))
+                : readScenario(new Scanner(System.in));
+        } catch (NoSuchFileException e) {
+            System.err.println("Error: no such scenario file " + source);
+            System.exit(1);
+            return;
+        } catch (IOException e) {
+            System.err.println("Error: cannot read scenario " + source + ": " + e.getMessage());
+            System.exit(1);
+            return;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: invalid scenario " + source + ": " + e.getMessage());
+            System.exit(1);
+            return;
+        } catch (NoSuchElementException e) {
+            System.err.println("Error: invalid scenario " + source + ": expected ten positional parameters");
+            System.exit(1);
+            return;
+        }
+
+        /** So does failing to run it, such as when the summary file cannot be written. */
+        try {
+            if (mode.equals("--compare")) {
+                compareRouting(scenario);
+            } else if (mode.equals("--estimate")) {
+                printEstimate(Estimate.of(scenario));
+            } else if (mode.equals("--split")) {
+                printSplitting(Splitting.of(scenario));
+            } else if (mode.equals("--live")) {
+                runLive(scenario);
+            } else if (!mode.isEmpty()) {
+                System.err.println("Error: unknown option " + mode);
+                System.exit(1);
+            } else {
+                new Simulator(scenario).run(System.out);
+            }
+        } catch (IllegalArgumentException | UncheckedIOException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
     }
 
-    public static void main(String[] args) {
-        Scanner sc = new Scanner(System.in);
+    /**
+     * Runs the Scenario live, fed by a thread that reads arrivals from
+     * standard input, and reports any that came too late to standard error.
+     */
+    static void runLive(Scenario scenario) {
+        ArrivalRing ring = new ArrivalRing();
+        Thread feed = new Thread(() -> {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(System.in))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    line = line.strip();
+                    try {
+                        ring.put(line.isEmpty() ? ring.now() : Double.parseDouble(line));
+                    } catch (IllegalArgumentException e) {
+                        System.err.println("Error: invalid arrival " + line);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Error: cannot read arrivals: " + e.getMessage());
+            } finally {
+                ring.close();
+            }
+        }, "live-feed");
+        feed.setDaemon(true);
+        feed.start();
+        new Simulator(scenario).runLive(System.out, ring);
+        if (ring.get_nLate() > 0) {
+            System.err.println(ring.get_nLate() + " arrivals came too late, and arrived at once");
+        }
+    }
 
+    /** Reads the ten positional parameters into a Scenario. */
+    static Scenario readScenario(Scanner sc) {
         int seed = sc.nextInt();
         int nServers = sc.nextInt();
         int nSelfCheckouts = sc.nextInt();
@@ -31,163 +135,72 @@ class Main {
         double restingrate = sc.nextDouble();
         double probresting = sc.nextDouble();
         double probGreedy = sc.nextDouble();
-        
-        /** Set the parameters for the Random Generator in the system. */
-        Event.setRg(seed, arrivalrate, servicerate, 
-                restingrate, probresting, probGreedy);
-        
-        /** Add Servers to list of Servers. */
-        List<Server> servers = new ArrayList<>(nServers + nSelfCheckouts);
-        for (int i = 1; i <= nServers; i++) {
-            servers.add(Server.genHumanServer(i));
-        }
-        for (int i = nServers + 1; i <= nServers + nSelfCheckouts; i++) {
-            servers.add(Server.genSelfCheckoutCounter(i));
-        }
-
-        /** Add arriving customers to list of Customers. */
-        List<Customer> customers = new ArrayList<>(nCustomers);
-        for (int i = 1; i <= nCustomers; i++) {
-            customers.add(Customer.genArrival(i));
-        }
         sc.close();
 
-        PriorityQueue<Event> eventQ = new PriorityQueue<>();
-        
-        /** Adding arrivals of customers to eventQ. */
-        for (int i = 0; i < customers.size(); i++) {
-            Customer currCustomer = customers.get(i);
-            eventQ.add(new Event(currCustomer.get_arrivaltime(), 
-                        currCustomer, Action.ARRIVES));
-        }
-        
-        /** loop through queue of Events. */
-        while (eventQ.size() > 0) {
-            Event currEvent = eventQ.poll();
-            Action currAction = currEvent.get_action();
-            double currTime = currEvent.get_time();
-
-            /** 
-             * For SERVER_REST or SERVER_BACK,
-             * no Customer is involved in the logic.
-             * So in this case, currCustomer would be null.
-             * no need to print out these events either.
-            */
-            Customer currCustomer = currEvent.get_customer();
-            if (currAction != Action.SERVER_REST && currAction != Action.SERVER_BACK) {
-                System.out.println(currEvent.toString());
-            }
-
-            /** For LEAVES and ARRIVES, no Server is involved in the logic. */
-            Server currServer = null; 
-            if (currAction == Action.SERVED || 
-                currAction == Action.WAITS || 
-                currAction == Action.DONE || 
-                currAction == Action.SERVER_REST || 
-                currAction == Action.SERVER_BACK) {
-                currServer = currEvent.get_server();
-            }            
-
-            /** 
-             * possible flow paths:
-             * Arrives - Served - Done
-             * Arrives - Waits - Served - Done
-             * Arrives - Leaves 
-             */
-
-            if (currAction == Action.ARRIVES) {
-                /** 
-                 * When customer arrives, first thing they do is to 
-                 * check if there are any idle servers.
-                 * If not, check for any non-full queues.
-                 * If there are non-full queues, 
-                 * typical customers join the first one
-                 * but greedy customers join the one with the shortest queue.
-                 * If all queues are full, the customer leaves.
-                 */
-                Server nextServer = servers.stream()
-                    .filter(server -> server.canServe(currCustomer))
-                    .findFirst()
-                    .orElse(servers.stream()
-                                   .filter(server -> server.get_Qlen() < Qmax)
-                                   .findFirst()
-                                   .orElse(null));
-
-                if (nextServer == null) {
-                    eventQ.add(new Event(currTime, currCustomer, Action.LEAVES));
-                } else if (nextServer.canServe(currCustomer)) {
-                    eventQ.add(new Event(currTime, currCustomer, nextServer, Action.SERVED));
-                } else if (nextServer.get_Qlen() < Qmax) {
-                    if (currCustomer.isGreedy()) {
-                        /** The class Server implements Comparable<Server>,
-                         * and their natural ordering is as follows 
-                         * (from most important to least important):
-                         * 1) the length of their queues
-                         * 2) their id
-                         */
-                        nextServer = servers.stream()
-                                            .sorted()
-                                            .findFirst()
-                                            .orElse(null);
-                    }
-                    if (nextServer == null) {
-                        System.out.println("list of Servers is empty");
-                    }
-                    eventQ.add(new Event(currTime, currCustomer, nextServer, Action.WAITS));
-                }                               
-
-            } else if (currAction == Action.SERVED) {
-                /**
-                 * serve() updates the states of the Server
-                 * and returns the time when service is done.
-                 * serve() removes the customer from the server's queue
-                 * and the server's next available time is updated.
-                 */
-                double doneTime = currServer.serve(currCustomer, currTime);
+        return Scenario.of(seed, nServers, nSelfCheckouts, Qmax, nCustomers,
+                arrivalrate, servicerate, restingrate, probresting, probGreedy);
+    }
 
-                eventQ.add(new Event(doneTime, currCustomer, currServer, Action.DONE));
+    /** Prints an analytical Estimate, and whether simulating is worthwhile. */
+    static void printEstimate(Estimate estimate) {
+        System.out.println("servers          " + estimate.get_nServers());
+        System.out.println("capacity         " + estimate.get_capacity());
+        System.out.println("utilisation      " + Simulator.fdouble(estimate.get_utilisation()));
+        System.out.println("P(wait)          " + String.format("%.6f", estimate.get_probWait()));
+        System.out.println("P(balk)          " + String.format("%.6f", estimate.get_probBalk()));
+        System.out.println("P(renege)        " + String.format("%.6f", estimate.get_probRenege()));
+        System.out.println("wait std dev     " + Simulator.fdouble(Math.sqrt(estimate.get_waitVariance())));
+        System.out.println("customers for 5% " + estimate.requiredCustomers(0.05, 1.96));
+        System.out.println("exact            " + estimate.isExact());
+        System.out.println("simulate         " + !estimate.isSimulationUnnecessary());
+        System.out.println(estimate);
+    }
 
-            } else if (currAction == Action.WAITS) {
-                /** Customer decides to wait and is added to Server's queue. */
-                currServer.addToQ(currCustomer);
-            } else if (currAction == Action.DONE) {
-                /**
-                 * If the server needs to rest,
-                 * a new event is scheduled with the action SERVER_REST,
-                 * and the server temporarily ignores the customers 
-                 * waiting in the queue.
-                 * If the server does not need to rest, 
-                 * and if there are other customers waiting,
-                 * the server immediately serves the next customer in line.
-                 * So the SERVED event is scheduled  
-                 * with the same timestamp as the current event.
-                 * Otherwise, nothing is done.
-                 */
-                if (currServer.needsToRest()) {
-                    eventQ.add(new Event(currTime, currServer, Action.SERVER_REST)); 
-                } else if (currServer.get_Qlen() > 0) {
-                    Customer nextCustomer = currServer.get_customerQ().peek();
-                    eventQ.add(new Event(currTime, nextCustomer, currServer, Action.SERVED));
-                }
-            } else if (currAction == Action.SERVER_REST) {
-                /** restsFrom() updates the variable tracking
-                 * the next time th server is free and 
-                 * returns the time the server's rest ends.
-                 * Then, a new SERVER_BACK is scheduled immediately,
-                 * with the same timestamp as the current event.
-                 */
-                double restEnd = currServer.restsFrom(currTime);
-                eventQ.add(new Event(restEnd, currServer, Action.SERVER_BACK));
-            } else if (currAction == Action.SERVER_BACK) {
-                if (currServer.get_Qlen() > 0) {
-                    Customer nextCustomer = currServer.get_customerQ().peek();
-                    eventQ.add(new Event(currTime, nextCustomer, currServer, Action.SERVED));
-                }
-            }
+    /** Prints a Splitting estimate, stage by stage, next to what the plain run saw. */
+    static void printSplitting(Splitting split) {
+        int[] levels = split.get_levels();
+        double[] probs = split.get_levelProbs();
+        StringBuilder thresholds = new StringBuilder();
+        for (int level : levels) {
+            thresholds.append(thresholds.length() == 0 ? "" : ", ").append(level);
         }
-        /** Prints system statistics. */
-        System.out.println("[" + fdouble(Event.get_avgWait()) + " " + 
-                Event.get_nServed() + " " + Event.get_nNotServed() + "]");
+        System.out.println("levels           " + thresholds);
+        System.out.println("excursions       " + split.get_nExcursions()
+                + String.format(" (%.6g per arrival)", split.get_excursionRate()));
+        for (int k = 0; k < probs.length; k++) {
+            System.out.println(String.format("%-16s %.6f",
+                        "P(" + levels[k + 1] + " | " + levels[k] + ")", probs[k]));
+        }
+        System.out.println("balks at K       " + Simulator.fdouble(split.get_balksPerTop()));
+        System.out.println("P(balk)          " + String.format("%.6g", split.get_probBalk()));
+        System.out.println("relative error   " + String.format("%.3f", split.get_relativeError()));
+        System.out.println("plain P(balk)    " + String.format("%.6g", split.get_directProbBalk()));
+        System.out.println("balks per run    " + String.format("%.6g", split.get_nNotServed()));
+        System.out.println("events           " + split.get_nEvents());
+    }
 
+    /**
+     * Runs the Scenario once under every RoutingPolicy, with the same seed,
+     * and prints the throughput and balk statistics of each.
+     * @throws IllegalArgumentException if the Scenario writes a summary file,
+     * since each policy's run would overwrite the last one's.
+     */
+    static void compareRouting(Scenario scenario) {
+        if (scenario.get_summaryFile() != null) {
+            throw new IllegalArgumentException("--compare cannot write output.summary.file, "
+                    + "since the run of each policy would overwrite the last");
+        }
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        System.out.println(String.format("%-15s %9s %9s %9s %9s %8s %9s %11s",
+                    "routing", "served", "left", "waited", "reneged",
+                    "balk%", "avgWait", "throughput"));
+        for (String name : RoutingPolicy.NAMES) {
+            Statistics stats = new Simulator(scenario.withRouting(name).withTrace(false))
+                .run(discard);
+            System.out.println(String.format("%-15s %9d %9d %9d %9d %8.3f %9.3f %11.3f",
+                        stats.get_routing(), stats.get_nServed(), stats.get_nNotServed(),
+                        stats.get_nWaited(), stats.get_nReneged(), 100 * stats.get_balkRate(),
+                        stats.get_avgWait(), stats.get_throughput()));
+        }
     }
 }
@@ -0,0 +1,478 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import cs2030.simulator.Action;
+import cs2030.simulator.ArrivalRing;
+import cs2030.simulator.EventFilter;
+import cs2030.simulator.EventRecord;
+import cs2030.simulator.Scenario;
+import cs2030.simulator.Simulator;
+import cs2030.simulator.Statistics;
+
+/**
+ * A deterministic regression harness over golden traces.
+ * Every case in regression/cases.txt is a fixed Scenario, and since the
+ * Simulator draws every random number from the Scenario's seed,
+ * its trace is fully determined: any change in the output of a case
+ * is a change in behaviour, however small.
+ *
+ * <p>Usage: java Regress record | record-perf | check [--threshold F] [--no-perf] | live</p>
+ *
+ * <ul>
+ * <li>record writes the golden trace of every case to regression/golden,
+ * and its throughput to regression/perf.properties;</li>
+ * <li>record-perf only rewrites the throughput, for a new machine;</li>
+ * <li>check streams the trace of every case against its golden trace,
+ * then measures its throughput, and exits with status 1 if any trace
+ * differs or any case runs slower than its recorded events per second
+ * by more than the threshold, a fraction that is 0.3 by default;</li>
+ * <li>live checks the ArrivalRing with in-process producer threads, first on
+ * its own and then feeding live runs of regression/live.properties, whose
+ * arrivals are offered ahead of time, and regression/live-late.properties,
+ * whose arrivals are late.
+ * Threads interleave differently every time, so it has no golden trace:
+ * it checks that every arrival is delivered once, in order, and never
+ * before its time, and exits with status 1 if any is not.</li>
+ * </ul>
+ *
+ * Golden traces are gzipped and compared line by line as they are produced,
+ * so neither the golden nor the new trace is ever held in memory.
+ */
+class Regress {
+    /** The directory holding the matrix, the golden traces and the baseline throughput. */
+    static final Path DIR = Path.of("regression");
+
+    /** The slowdown allowed by default, as a fraction of the baseline events per second. */
+    static final double DEFAULT_THRESHOLD = 0.3;
+
+    /** The number of untimed rounds over every case before measuring. */
+    static final int WARM_UP_ROUNDS = 5;
+
+    /** The minimum number of timed rounds over every case. */
+    static final int MIN_ROUNDS = 10;
+
+    /** The minimum time spent measuring, in nanoseconds. */
+    static final long MIN_MEASURE = 3_000_000_000L;
+
+    /** The number of producer threads in the live check. */
+    static final int LIVE_PRODUCERS = 4;
+
+    /** The number of arrivals each producer offers to the ring on its own. */
+    static final int RING_ARRIVALS = 2_000_000;
+
+    /** The number of arrivals each producer offers to the live run. */
+    static final int LIVE_ARRIVALS = 5_000;
+
+    /** The rate at which each producer's customers arrive in the live run. */
+    static final double LIVE_RATE = 0.5;
+
+    /**
+     * How far ahead of its time, in simulated time, a producer offers
+     * each arrival in the live run, so that it is not late even if the
+     * producer loses the processor for a few scheduling quanta.
+     */
+    static final double LIVE_LEAD = 500;
+
+    /** One case of the matrix: a name, including the seed, and its Scenario. */
+    static class Case {
+        final String name;
+        final Scenario scenario;
+
+        Case(String name, Scenario scenario) {
+            this.name = name;
+            this.scenario = scenario;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String command = args.length > 0 ? args[0] : "check";
+        double threshold = DEFAULT_THRESHOLD;
+        boolean perf = true;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--threshold") && i + 1 < args.length) {
+                threshold = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("--no-perf")) {
+                perf = false;
+            } else {
+                System.err.println("Error: unknown option " + args[i]);
+                System.exit(2);
+            }
+        }
+
+        if (command.equals("live")) {
+            System.exit(checkRing() & checkLive("live", false) & checkLive("live-late", true) ? 0 : 1);
+            return;
+        }
+        List<Case> cases = readCases(DIR.resolve("cases.txt"));
+        boolean ok;
+        if (command.equals("record")) {
+            record(cases);
+            recordPerf(cases);
+            ok = true;
+        } else if (command.equals("record-perf")) {
+            recordPerf(cases);
+            ok = true;
+        } else if (command.equals("check")) {
+            ok = check(cases, perf, threshold);
+        } else {
+            System.err.println("Error: unknown command " + command);
+            System.exit(2);
+            return;
+        }
+        System.exit(ok ? 0 : 1);
+    }
+
+    /**
+     * Reads the matrix of cases, expanding each line into one case per seed.
+     * @param file The file listing the cases.
+     * @throws IllegalArgumentException if a line cannot be read as a case.
+     */
+    static List<Case> readCases(Path file) throws IOException {
+        List<Case> cases = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s+", 3);
+            if (fields.length < 3) {
+                throw new IllegalArgumentException("expected a name, seeds and a job: " + line);
+            }
+            for (String seed : fields[1].split(",")) {
+                cases.add(new Case(fields[0] + "-s" + seed,
+                            parseJob(Integer.parseInt(seed), fields[2])));
+            }
+        }
+        return cases;
+    }
+
+    /**
+     * Parses the job of a case into a traced Scenario with the given seed.
+     * @param seed The seed of the case.
+     * @param job The positional parameters after the seed, or a scenario file
+     *     and an optional routing policy.
+     */
+    static Scenario parseJob(int seed, String job) throws IOException {
+        String[] words = job.split("\\s+");
+        Scenario scenario;
+        if (words[0].endsWith(".properties")) {
+            scenario = Scenario.load(Path.of(words[0])).withSeed(seed);
+            if (words.length > 1) {
+                scenario = scenario.withRouting(words[1]);
+            }
+        } else {
+            scenario = Main.readScenario(new Scanner(seed + " " + job));
+        }
+        return scenario.withTrace(true);
+    }
+
+    /** Returns the path of the golden trace of a case. */
+    static Path golden(Case c) {
+        return DIR.resolve("golden").resolve(c.name + ".trace.gz");
+    }
+
+    /** Writes the golden trace of every case. */
+    static void record(List<Case> cases) throws IOException {
+        Files.createDirectories(DIR.resolve("golden"));
+        for (Case c : cases) {
+            try (PrintStream out = new PrintStream(
+                        new GZIPOutputStream(Files.newOutputStream(golden(c))),
+                        false, StandardCharsets.UTF_8)) {
+                new Simulator(c.scenario).run(out);
+            }
+            System.out.println("recorded " + golden(c));
+        }
+    }
+
+    /** Measures every case and writes its events per second as the new baseline. */
+    static void recordPerf(List<Case> cases) throws IOException {
+        double[] rates = measure(cases);
+        /** Sorted, so that re-recording gives a readable diff. */
+        TreeMap<String, String> baseline = new TreeMap<>();
+        for (int i = 0; i < cases.size(); i++) {
+            baseline.put(cases.get(i).name, String.format("%.0f", rates[i]));
+        }
+        try (Writer out = Files.newBufferedWriter(DIR.resolve("perf.properties"))) {
+            out.write("# Events per second of each regression case, written by java Regress record-perf.\n");
+            out.write("# These depend on the machine: re-record them before comparing on another one.\n");
+            for (var entry : baseline.entrySet()) {
+                out.write(entry.getKey() + " = " + entry.getValue() + "\n");
+            }
+        }
+        System.out.println("recorded " + DIR.resolve("perf.properties"));
+    }
+
+    /**
+     * Checks the trace of every case, then its throughput, and prints a report.
+     * @param cases The cases to check.
+     * @param perf Whether to check throughput as well as traces.
+     * @param threshold The slowdown allowed, as a fraction of the baseline.
+     * @return true if every case passed.
+     */
+    static boolean check(List<Case> cases, boolean perf, double threshold) throws IOException {
+        boolean ok = true;
+        for (Case c : cases) {
+            if (!Files.exists(golden(c))) {
+                System.out.println(String.format("%-22s MISSING %s", c.name, golden(c)));
+                ok = false;
+                continue;
+            }
+            TraceComparator comparator = new TraceComparator(new BufferedReader(
+                        new InputStreamReader(new GZIPInputStream(
+                                Files.newInputStream(golden(c))), StandardCharsets.UTF_8)));
+            try (PrintStream out = new PrintStream(comparator, false, StandardCharsets.UTF_8)) {
+                new Simulator(c.scenario).run(out);
+            }
+            if (!comparator.matches()) {
+                System.out.println(String.format("%-22s DIFFERS at %s", c.name, comparator.describe()));
+                ok = false;
+            }
+        }
+        if (ok) {
+            System.out.println("traces: " + cases.size() + " cases identical");
+        }
+        if (!perf) {
+            return ok;
+        }
+
+        Properties baseline = new Properties();
+        Path perfFile = DIR.resolve("perf.properties");
+        if (Files.exists(perfFile)) {
+            try (Reader in = Files.newBufferedReader(perfFile)) {
+                baseline.load(in);
+            }
+        }
+        double[] rates = measure(cases);
+        System.out.println(String.format("%-22s %12s %12s %8s", "case", "events/s", "baseline", "change"));
+        for (int i = 0; i < cases.size(); i++) {
+            Case c = cases.get(i);
+            double rate = rates[i];
+            String recorded = baseline.getProperty(c.name);
+            if (recorded == null) {
+                System.out.println(String.format("%-22s %12.0f %12s %8s", c.name, rate, "-", "-"));
+                continue;
+            }
+            double base = Double.parseDouble(recorded);
+            double change = rate / base - 1;
+            boolean slow = change < -threshold;
+            System.out.println(String.format("%-22s %12.0f %12.0f %+7.1f%%%s",
+                        c.name, rate, base, 100 * change, slow ? "  SLOWER" : ""));
+            ok &= !slow;
+        }
+        return ok;
+    }
+
+    /**
+     * Measures the throughput of every case, in events per second.
+     * The cases are timed in interleaved rounds, after a few untimed ones,
+     * and each keeps its best run: noise only ever slows a run down, and
+     * interleaving spreads JIT and GC pauses over many cases and rounds
+     * instead of charging them all to whichever case happened to be running.
+     * The trace is still formatted, but written nowhere.
+     */
+    static double[] measure(List<Case> cases) {
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            for (Case c : cases) {
+                run(c);
+            }
+        }
+        double[] best = new double[cases.size()];
+        long start = System.nanoTime();
+        int rounds = 0;
+        while (rounds < MIN_ROUNDS || System.nanoTime() - start < MIN_MEASURE) {
+            for (int i = 0; i < cases.size(); i++) {
+                long t0 = System.nanoTime();
+                Statistics stats = run(cases.get(i));
+                long elapsed = System.nanoTime() - t0;
+                best[i] = Math.max(best[i], stats.get_nEvents() * 1e9 / Math.max(elapsed, 1));
+            }
+            rounds++;
+        }
+        return best;
+    }
+
+    /**
+     * Offers RING_ARRIVALS arrivals from each of LIVE_PRODUCERS threads to an
+     * ArrivalRing, as fast as they can, and drains it on this thread.
+     * Producer p offers the times i * LIVE_PRODUCERS + p, for i counting up,
+     * so each time names the producer and its position among the producer's own.
+     * @return true if every arrival was drained once and in each producer's order.
+     */
+    static boolean checkRing() {
+        ArrivalRing ring = new ArrivalRing();
+        long[] allocated = new long[LIVE_PRODUCERS];
+        Thread[] producers = new Thread[LIVE_PRODUCERS];
+        for (int p = 0; p < LIVE_PRODUCERS; p++) {
+            int id = p;
+            producers[p] = new Thread(() -> {
+                long before = allocatedBytes();
+                for (int i = 0; i < RING_ARRIVALS; i++) {
+                    ring.put((double) i * LIVE_PRODUCERS + id);
+                }
+                allocated[id] = allocatedBytes() - before;
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread producer : producers) {
+            producer.start();
+        }
+
+        long[] expected = new long[LIVE_PRODUCERS];
+        long total = (long) LIVE_PRODUCERS * RING_ARRIVALS;
+        boolean ok = true;
+        for (long n = 0; n < total; ) {
+            double at = ring.poll();
+            if (Double.isNaN(at)) {
+                Thread.onSpinWait();
+                continue;
+            }
+            long value = (long) at;
+            int p = (int) (value % LIVE_PRODUCERS);
+            if (value / LIVE_PRODUCERS != expected[p]) {
+                System.out.println("ring: producer " + p + " delivered " + value / LIVE_PRODUCERS
+                        + " where " + expected[p] + " was expected");
+                ok = false;
+            }
+            expected[p] = value / LIVE_PRODUCERS + 1;
+            n++;
+        }
+        long elapsed = System.nanoTime() - start;
+        join(producers);
+        if (!Double.isNaN(ring.poll())) {
+            System.out.println("ring: delivered more arrivals than were offered");
+            ok = false;
+        }
+        long bytes = 0;
+        for (long b : allocated) {
+            bytes += b;
+        }
+        System.out.println(String.format("ring: %d producers, %d arrivals %s, %.1fM per second, "
+                    + "%.4f bytes allocated per arrival", LIVE_PRODUCERS, total,
+                    ok ? "in order" : "OUT OF ORDER", total * 1e3 / elapsed, (double) bytes / total));
+        return ok;
+    }
+
+    /**
+     * Runs a scenario live, fed by LIVE_PRODUCERS threads that each offer
+     * LIVE_ARRIVALS Poisson arrivals. On time, each arrival is offered
+     * LIVE_LEAD ahead of its time. Late, each is offered at its time,
+     * stamped alternately with the time the run has reached and with 0,
+     * so that the run clamps it to the time of the last Event, which may
+     * still have Events pending, such as a server starting to rest.
+     * @param name The name of the scenario file in regression/, without .properties.
+     * @param late Whether the arrivals are late.
+     * @return true if every customer, generated or live, arrived once,
+     *     in time order, no Event was processed before its time,
+     *     and arrivals were late exactly when they were meant to be.
+     */
+    static boolean checkLive(String name, boolean late) throws IOException {
+        Scenario scenario = Scenario.load(DIR.resolve(name + ".properties")).withTrace(false);
+        ArrivalRing ring = new ArrivalRing();
+        Simulator simulator = new Simulator(scenario);
+        AtomicLong nArrived = new AtomicLong();
+        AtomicBoolean ordered = new AtomicBoolean(true);
+        AtomicBoolean onTime = new AtomicBoolean(true);
+        double[] last = {Double.NEGATIVE_INFINITY};
+        simulator.subscribe(batch -> {
+            double now = ring.now();
+            for (EventRecord event : batch) {
+                if (event.get_time() < last[0]) {
+                    ordered.set(false);
+                }
+                if (event.get_time() > now) {
+                    onTime.set(false);
+                }
+                last[0] = event.get_time();
+            }
+            nArrived.addAndGet(batch.size());
+        }, EventFilter.all().actions(Action.ARRIVES), Simulator.DEFAULT_BATCH);
+
+        Thread[] producers = new Thread[LIVE_PRODUCERS];
+        for (int p = 0; p < LIVE_PRODUCERS; p++) {
+            Random random = new Random(scenario.get_seed() + 100 + p);
+            producers[p] = new Thread(() -> {
+                double at = 0;
+                for (int i = 0; i < LIVE_ARRIVALS; i++) {
+                    at -= Math.log(random.nextDouble()) / LIVE_RATE;
+                    while (ring.now() < (late ? at : at - LIVE_LEAD)) {
+                        LockSupport.parkNanos(100_000);
+                    }
+                    ring.put(!late ? at : i % 2 == 0 ? ring.now() : 0);
+                }
+            });
+        }
+        Thread closer = new Thread(() -> {
+            for (Thread producer : producers) {
+                producer.start();
+            }
+            join(producers);
+            ring.close();
+        });
+        long start = System.nanoTime();
+        closer.start();
+        Statistics stats = simulator.runLive(
+                new PrintStream(OutputStream.nullOutputStream()), ring);
+        long elapsed = System.nanoTime() - start;
+        join(new Thread[] {closer});
+
+        long expected = scenario.get_nCustomers() + (long) LIVE_PRODUCERS * LIVE_ARRIVALS;
+        /** Customers who reneged are among those not served. */
+        long accounted = (long) stats.get_nServed() + stats.get_nNotServed();
+        boolean ok = nArrived.get() == expected && accounted == expected
+            && ordered.get() && onTime.get() && (ring.get_nLate() > 0) == late;
+        System.out.println(String.format("%s: %d arrivals, %d of them live, %d late%s, %s, "
+                    + "%.3f s for %.3f of simulated time at live.speed %s",
+                    name, nArrived.get(), (long) LIVE_PRODUCERS * LIVE_ARRIVALS, ring.get_nLate(),
+                    (ring.get_nLate() > 0) == late ? "" : late ? " (EXPECTED SOME)" : " (EXPECTED NONE)",
+                    ok ? "all accounted for in order" : "expected " + expected + ", accounted "
+                    + accounted + (ordered.get() ? "" : ", OUT OF ORDER")
+                    + (onTime.get() ? "" : ", AHEAD OF THE CLOCK"),
+                    elapsed / 1e9, stats.get_endTime(), scenario.get_liveSpeed()));
+        return ok;
+    }
+
+    /** Returns the number of bytes allocated by the current thread so far. */
+    static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+            .getCurrentThreadAllocatedBytes();
+    }
+
+    /** Waits for every thread to finish. */
+    static void join(Thread[] threads) {
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /** Runs a case with its output discarded. */
+    static Statistics run(Case c) {
+        PrintStream discard = new PrintStream(
+                new BufferedOutputStream(OutputStream.nullOutputStream()));
+        return new Simulator(c.scenario).run(discard);
+    }
+}
@@ -0,0 +1,113 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * An OutputStream that compares everything written to it, line by line,
+ * against a golden trace, without holding either in memory.
+ * Only the current line is buffered, so traces of any length can be checked.
+ * The first line that differs is remembered, and the comparison goes on
+ * counting lines, so that a trace that is merely longer or shorter is reported too.
+ */
+class TraceComparator extends OutputStream {
+    /** The golden trace, read one line at a time. */
+    private final BufferedReader golden;
+
+    /** The bytes of the line being written. */
+    private byte[] line = new byte[128];
+
+    /** The number of bytes of the current line written so far. */
+    private int length = 0;
+
+    /** The number of lines compared so far. */
+    private long nLines = 0;
+
+    /** The line number of the first difference, or 0 if there is none yet. */
+    private long firstDiff = 0;
+
+    /** The golden line at the first difference, or null if the golden trace ended. */
+    private String expected;
+
+    /** The written line at the first difference, or null if the output ended. */
+    private String actual;
+
+    /**
+     * Constructor returns a TraceComparator that reads from the given golden trace.
+     * @param golden The golden trace to compare against.
+     */
+    TraceComparator(BufferedReader golden) {
+        this.golden = golden;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (b == '\n') {
+            this.compare(new String(this.line, 0, this.length, StandardCharsets.UTF_8));
+            this.length = 0;
+            return;
+        }
+        if (this.length == this.line.length) {
+            this.line = Arrays.copyOf(this.line, 2 * this.length);
+        }
+        this.line[this.length++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            this.write(b[i]);
+        }
+    }
+
+    /** Compares one written line with the next golden line. */
+    private void compare(String written) throws IOException {
+        this.nLines++;
+        String goldenLine = this.golden.readLine();
+        if (this.firstDiff == 0 && !written.equals(goldenLine)) {
+            this.firstDiff = this.nLines;
+            this.expected = goldenLine;
+            this.actual = written;
+        }
+    }
+
+    /**
+     * Finishes the comparison: a partial last line is compared,
+     * and any golden lines left over count as a difference.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.length > 0) {
+            this.compare(new String(this.line, 0, this.length, StandardCharsets.UTF_8));
+            this.length = 0;
+        }
+        String extra = this.golden.readLine();
+        if (this.firstDiff == 0 && extra != null) {
+            this.firstDiff = this.nLines + 1;
+            this.expected = extra;
+            this.actual = null;
+        }
+        this.golden.close();
+    }
+
+    /** Checks if the output matched the golden trace so far. */
+    boolean matches() {
+        return this.firstDiff == 0;
+    }
+
+    /** Returns the number of lines written. */
+    long get_nLines() {
+        return this.nLines;
+    }
+
+    /** Describes the first difference, in the style of diff. */
+    String describe() {
+        if (this.matches()) {
+            return "identical";
+        }
+        return "line " + this.firstDiff + ":\n"
+            + "  < " + (this.expected == null ? "(end of golden trace)" : this.expected) + "\n"
+            + "  > " + (this.actual == null ? "(end of output)" : this.actual);
+    }
+}
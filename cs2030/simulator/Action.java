@@ -13,6 +13,8 @@ import java.lang.Comparable;
  *
  * <p>Arrives - Leaves</p>
  *
+ * <p>Arrives - Waits - Reneges</p>
+ *
  * A Server taking a rest can randomly occur after each Done event, 
  * otherwise, it does not interfere with this logic.
  * Each enumerated Action is instantiated with an integer,
@@ -85,7 +87,15 @@ public enum Action implements Comparable<Action> {
      * Models a Customer done being served. Being DONE receiving service is the last 
      * possible thing that could happen to a Customer entering the system.
      */
-    DONE(6);
+    DONE(6),
+
+    /** 
+     * Models a waiting Customer running out of patience and leaving the queue.
+     * A Customer can only renege while waiting, and never once SERVED,
+     * so its priority relative to SERVED and DONE does not matter;
+     * it only has to come after WAITS.
+     */
+    RENEGES(7);
     
     /** Tracks how much priority each type of Action should be given by the system. */
     private final int priority;
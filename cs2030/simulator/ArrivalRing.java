@@ -0,0 +1,245 @@
+package cs2030.simulator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded queue of live arrivals that any number of producer threads
+ * push into, and that one thread, the one running Simulator.runLive, drains.
+ * The Simulator merges each arrival into its calendar by time, so producers
+ * need not agree on an order among themselves, and the rest of the run goes
+ * on as if the arrival had been generated by the Scenario.
+ *
+ * <p>The ring is lock-free: a producer claims a slot by advancing a shared
+ * counter with one compare-and-set, writes the arrival time into a primitive
+ * array, and publishes it by stamping the slot's sequence number; the consumer
+ * waits for that stamp, reads the time, and stamps the slot free for the next
+ * lap. Producers only ever contend on the counter, never block each other
+ * while writing, and allocate nothing per arrival.
+ * A full ring refuses further arrivals until the Simulator catches up,
+ * rather than growing without bound.</p>
+ *
+ * <p>The ring also keeps the clock of the run: once the run starts, now()
+ * is the simulated time corresponding to the wall-clock time elapsed,
+ * scaled by the Scenario's live.speed. Arrivals can be stamped with now(),
+ * or with an explicit time, such as one replayed from a recorded feed.
+ * An arrival whose time the run has already passed is counted as late,
+ * and arrives at the current time of the run instead.</p>
+ *
+ * <p>An ArrivalRing feeds a single run, and should be closed once every
+ * producer has finished offering arrivals, so that the run can end.</p>
+ */
+public class ArrivalRing {
+    /** The number of slots of a ring, unless another capacity is given. */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /** The largest number of slots of a ring. */
+    public static final int MAX_CAPACITY = 1 << 30;
+
+    /** The longest the consumer sleeps at a time, in nanoseconds, before looking for new arrivals. */
+    static final long MAX_PAUSE = 200_000;
+
+    /** The arrival time held by each slot. */
+    private final double[] times;
+
+    /**
+     * The sequence number of each slot. A slot whose sequence number equals
+     * a producer's position is free for it, and one whose sequence number is
+     * one past the consumer's position holds the arrival published there.
+     */
+    private final AtomicLongArray sequences;
+
+    /** The number of slots less one, to map positions to slots. */
+    private final int mask;
+
+    /** The position the next producer will claim. */
+    private final AtomicLong tail = new AtomicLong();
+
+    /** The position the consumer reads next; only the consumer touches it. */
+    private long head = 0;
+
+    /** Whether every producer has finished. */
+    private volatile boolean closed = false;
+
+    /** The value of System.nanoTime() when the run started. */
+    private volatile long origin = 0;
+
+    /** The units of simulated time per second, or 0 until the run starts. */
+    private volatile double speed = 0;
+
+    /** The number of arrivals that came too late; only the consumer touches it. */
+    private long nLate = 0;
+
+    /** Constructor returns an empty ring with DEFAULT_CAPACITY slots. */
+    public ArrivalRing() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor returns an empty ring with at least the given number of slots,
+     * rounded up to a power of two.
+     * @param capacity The number of arrivals that can be pending at once.
+     * @throws IllegalArgumentException if capacity is not between 1 and MAX_CAPACITY.
+     */
+    public ArrivalRing(int capacity) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("the capacity of an ArrivalRing must be "
+                    + "between 1 and " + MAX_CAPACITY + ", not " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.times = new double[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            this.sequences.set(i, i);
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Pushes an arrival at the given simulated time, if there is room.
+     * Safe to call from any number of threads at once.
+     * @param at The simulated time of the arrival.
+     * @return true if the arrival was accepted, or false if the ring is full.
+     * @throws IllegalArgumentException if at is not a finite number.
+     */
+    public boolean offer(double at) {
+        if (!Double.isFinite(at)) {
+            throw new IllegalArgumentException("arrival time must be finite, not " + at);
+        }
+        long pos = this.tail.get();
+        while (true) {
+            int slot = (int) pos & this.mask;
+            long diff = this.sequences.get(slot) - pos;
+            if (diff == 0) {
+                if (this.tail.compareAndSet(pos, pos + 1)) {
+                    this.times[slot] = at;
+                    this.sequences.lazySet(slot, pos + 1);
+                    return true;
+                }
+                pos = this.tail.get();
+            } else if (diff < 0) {
+                /** The slot still holds the arrival from the previous lap. */
+                return false;
+            } else {
+                /** Another producer claimed this position first. */
+                pos = this.tail.get();
+            }
+        }
+    }
+
+    /**
+     * Pushes an arrival at the current time of the run, if there is room.
+     * @return true if the arrival was accepted, or false if the ring is full.
+     * @throws IllegalArgumentException if live.speed is infinite,
+     * since the current time of such a run is meaningless.
+     */
+    public boolean offerNow() {
+        return this.offer(this.now());
+    }
+
+    /**
+     * Pushes an arrival at the given simulated time,
+     * spinning for as long as the ring is full.
+     * The Simulator must be running, or about to, for room to be made.
+     * @param at The simulated time of the arrival.
+     * @throws IllegalArgumentException if at is not a finite number.
+     */
+    public void put(double at) {
+        while (!this.offer(at)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Removes and returns the time of the oldest arrival published,
+     * or NaN if there is none. Only one thread may poll a ring.
+     */
+    public double poll() {
+        int slot = (int) this.head & this.mask;
+        if (this.sequences.get(slot) != this.head + 1) {
+            return Double.NaN;
+        }
+        double at = this.times[slot];
+        this.sequences.lazySet(slot, this.head + this.mask + 1);
+        this.head++;
+        return at;
+    }
+
+    /**
+     * Marks every producer as finished. The run ends once every arrival
+     * offered before this call, and every Event following from them, is done.
+     * Arrivals offered afterwards may be lost.
+     */
+    public void close() {
+        this.closed = true;
+    }
+
+    /** Checks if every producer has finished. */
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    /**
+     * Returns the simulated time corresponding to the wall-clock time
+     * elapsed since the run started, or 0 before it starts.
+     */
+    public double now() {
+        double speed = this.speed;
+        if (speed == 0) {
+            return 0;
+        } else if (speed == Double.POSITIVE_INFINITY) {
+            return speed;
+        }
+        return (System.nanoTime() - this.origin) * speed / 1e9;
+    }
+
+    /** Returns the number of arrivals that can be pending at once. */
+    public int get_capacity() {
+        return this.mask + 1;
+    }
+
+    /**
+     * Returns the number of arrivals whose time the run had already passed
+     * when they were drained. Only accurate once the run is over.
+     */
+    public long get_nLate() {
+        return this.nLate;
+    }
+
+    /**
+     * Starts the clock of the run.
+     * @param speed The units of simulated time that pass per second.
+     * @throws IllegalStateException if the ring has already fed a run.
+     */
+    void start(double speed) {
+        if (this.speed != 0) {
+            throw new IllegalStateException("an ArrivalRing can only feed one run");
+        }
+        this.origin = System.nanoTime();
+        this.speed = speed;
+    }
+
+    /**
+     * Sleeps until the clock reaches the given simulated time,
+     * or for MAX_PAUSE, whichever is sooner, so that arrivals
+     * offered in the meantime are not held up for long.
+     * @param time The simulated time of the next Event.
+     */
+    void pauseUntil(double time) {
+        /** A run at infinite speed only ever waits for arrivals. */
+        double nanos = this.speed == Double.POSITIVE_INFINITY
+            ? MAX_PAUSE
+            : (time - this.now()) / this.speed * 1e9;
+        if (nanos > 0) {
+            LockSupport.parkNanos((long) Math.min(nanos, MAX_PAUSE));
+        }
+    }
+
+    /** Counts an arrival whose time the run had already passed. */
+    void countLate() {
+        this.nLate++;
+    }
+}
@@ -11,23 +11,30 @@ import java.lang.Math;
  * If all queues are full, both typical and greedy customers would leave.
  * This tendency for greediness is determined by a random generation 
  * system whose statistics are fed in via a call to a static method 
- * in the Event class.
+ * in the Event class. The Random Generator is kept per thread,
+ * so that runs on different threads draw from their own streams.
  */
 public class Customer implements Comparable<Customer> {
     /** Unique identification number for every customer. */
     private final int id;
     /** Tracks when the customer arrived. */
     private final double arrivaltime;
-    /** Tracks the arrival time of the previous customer. */
-    private static double prevArrivalTime;
-    /** Stores the Random Generator object to simulate random behaviour. */
-    private static RandomGenerator rg;
-    /** The probability of the customer being greedy.
-      * Greedy customers seek out the shortest queues instead of queueing at
-      * the first queue they see. */
-    private static double probGreedy;
+    /** The random state of the run on the current thread. */
+    private static final ThreadLocal<Draws> draws = ThreadLocal.withInitial(Draws::new);
     /** Tracks whether the customer is greedy. */
     private boolean isGreedy;
+
+    /** The random state that the Customers of one run share. */
+    private static class Draws {
+        /** Tracks the arrival time of the previous customer. */
+        private double prevArrivalTime;
+        /** Stores the Random Generator object to simulate random behaviour. */
+        private RandomGenerator rg;
+        /** The probability of the customer being greedy.
+          * Greedy customers seek out the shortest queues instead of queueing at
+          * the first queue they see. */
+        private double probGreedy;
+    }
     
     /** 
      * Private constructor that returns a new Customer.
@@ -53,24 +60,58 @@ public class Customer implements Comparable<Customer> {
      * given to the instantiated Customer.
      */
     public static Customer genArrival(int id) {
+        Draws draws = Customer.draws.get();
         double at = 0;
         if (id != 1) {
-            at = Customer.prevArrivalTime + rg.genInterArrivalTime();
+            at = draws.prevArrivalTime + draws.rg.genInterArrivalTime();
         }
-        Customer.prevArrivalTime = at;
-        boolean isGreedy = Customer.rg.genCustomerType() < Customer.probGreedy;
+        draws.prevArrivalTime = at;
+        boolean isGreedy = draws.rg.genCustomerType() < draws.probGreedy;
         return new Customer(id, at, isGreedy);
     }
     
+    /**
+     * Static factory method that returns a Customer arriving after the given time,
+     * as if the previous Customer had arrived then.
+     * Inter-arrival times are exponential, so this is also how the next arrival
+     * is drawn afresh when a simulation resumes from a copy of its state.
+     * @param id The unique identification number to be 
+     * given to the instantiated Customer.
+     * @param time The time from which the inter-arrival time is counted.
+     */
+    static Customer genArrivalAfter(int id, double time) {
+        Draws draws = Customer.draws.get();
+        double at = time + draws.rg.genInterArrivalTime();
+        draws.prevArrivalTime = at;
+        boolean isGreedy = draws.rg.genCustomerType() < draws.probGreedy;
+        return new Customer(id, at, isGreedy);
+    }
+
+    /**
+     * Static factory method that returns a Customer arriving at a given time,
+     * from outside the Scenario, such as one drained from an ArrivalRing.
+     * It draws nothing from the Random Generator, so the customers
+     * that the Scenario generates are unaffected.
+     * @param id The unique identification number to be
+     * given to the instantiated Customer.
+     * @param at The time at which the instantiated customer arrives.
+     * @param isGreedy Whether the Customer to be instantiated is greedy.
+     */
+    static Customer arrivingAt(int id, double at, boolean isGreedy) {
+        return new Customer(id, at, isGreedy);
+    }
+
     /**
      * Static method to set the Random Generator object to be stored
-     * as a static attribute of the Customer class.
+     * as a static attribute of the Customer class, for the current thread.
      * This object will be used to simulate random behaviour, 
      * i.e. whether the customer is greedy.
      */
     public static void setRg(RandomGenerator rg, double probGreedy) {
-        Customer.rg = rg;
-        Customer.probGreedy = probGreedy;
+        Draws draws = new Draws();
+        draws.rg = rg;
+        draws.probGreedy = probGreedy;
+        Customer.draws.set(draws);
     }
 
     /** Returns the unique identification number of the current instance of Customer. */
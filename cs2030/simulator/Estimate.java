@@ -0,0 +1,392 @@
+package cs2030.simulator;
+
+/**
+ * Estimates the statistics of a Scenario from queueing theory,
+ * without simulating it.
+ * The whole system is approximated by a single M/M/c/K queue, extended
+ * with exponential patience (Erlang-A) when customers renege:
+ * <ul>
+ * <li>c is the total number of servers, each serving at the mean rate of all servers;</li>
+ * <li>a server that may rest after serving a customer is treated as if its
+ * service time also included the expected rest, 1/mu + probRest/restingRate;</li>
+ * <li>K is c plus the total capacity of every queue, so customers balk
+ * exactly when every server is busy and every queue is full.</li>
+ * </ul>
+ * When the Scenario has a single queue and no server ever rests,
+ * the model is exact in steady state, whatever the routing policy,
+ * and simulating it only adds noise and the transient of starting empty.
+ * Otherwise the estimate is an approximation, which is closest when
+ * customers spread evenly over the queues.
+ * Estimate is immutable, and cheap: it takes O(c) time when customers
+ * never renege, whatever K is, and otherwise O(c) plus the number of
+ * queue positions that hold a non-negligible share of the customers.
+ */
+public class Estimate {
+    /** Below this probability of waiting, a Scenario is treated as having no queueing. */
+    public static final double TRIVIAL_WAIT = 1e-6;
+
+    /**
+     * The log of the factor below the states in which customers wait at which
+     * the rest of the chain is ignored, about 4e-18, far below the precision of a double.
+     */
+    static final double NEGLIGIBLE = 40;
+
+    /** Below this value of |log x| M, geometric moments are taken from their Taylor series. */
+    private static final double NEAR_UNIFORM = 1e-2;
+
+    /** The number of servers, c. */
+    private final int nServers;
+
+    /** The number of customers the system can hold, K. */
+    private final long capacity;
+
+    /** The offered load per server, lambda / (c mu). */
+    private final double utilisation;
+
+    /** The probability that an arriving customer has to wait, in steady state. */
+    private final double probWait;
+
+    /** The probability that an arriving customer balks, in steady state. */
+    private final double probBalk;
+
+    /** The probability that an arriving customer joins a queue but reneges. */
+    private final double probRenege;
+
+    /** The mean wait of customers who are served. */
+    private final double meanWait;
+
+    /** The variance of the wait of customers who are served. */
+    private final double waitVariance;
+
+    /** Whether the model describes the Scenario exactly. */
+    private final boolean exact;
+
+    /** The number of customers the Scenario simulates. */
+    private final int nCustomers;
+
+    /** Private constructor that returns a new Estimate. */
+    private Estimate(int nServers, long capacity, double utilisation, double probWait,
+            double probBalk, double probRenege, double meanWait, double waitVariance,
+            boolean exact, int nCustomers) {
+        this.nServers = nServers;
+        this.capacity = capacity;
+        this.utilisation = utilisation;
+        this.probWait = probWait;
+        this.probBalk = probBalk;
+        this.probRenege = probRenege;
+        this.meanWait = meanWait;
+        this.waitVariance = waitVariance;
+        this.exact = exact;
+        this.nCustomers = nCustomers;
+    }
+
+    /**
+     * Static factory method that estimates the steady-state statistics of a Scenario.
+     * @param sc The Scenario to estimate.
+     */
+    public static Estimate of(Scenario sc) {
+        int c = 0;
+        long queueCapacity = 0;
+        int nQueues = 0;
+        double totalRate = 0;
+        boolean rests = false;
+        for (PoolSpec pool : sc.get_pools()) {
+            int n = pool.get_nServers();
+            if (n == 0) {
+                continue;
+            }
+            double meanBusy = 1 / pool.get_serviceRate();
+            if (pool.get_probRest() > 0) {
+                meanBusy += pool.get_probRest() / pool.get_restingRate();
+                rests = true;
+            }
+            c += n;
+            totalRate += n / meanBusy;
+            int queues = pool.hasSharedQueue() ? 1 : n;
+            nQueues += queues;
+            queueCapacity += (long) queues * pool.get_Qmax();
+        }
+        boolean exact = nQueues <= 1 && !rests;
+        if (c == 0) {
+            return new Estimate(0, 0, Double.POSITIVE_INFINITY, 0, 1, 0, 0, 0,
+                    true, sc.get_nCustomers());
+        }
+
+        double lambda = sc.get_arrivalRate();
+        double mu = totalRate / c;
+        double theta = sc.get_patienceRate();
+        long K = c + queueCapacity;
+
+        /**
+         * The stationary distribution of the birth-death chain, accumulated
+         * in log space so that large c and K neither overflow nor underflow.
+         * In state n, customers arrive at rate lambda (if n < K), and leave at
+         * rate min(n, c) mu + max(n - c, 0) theta. Nothing is stored per state:
+         * every sum is kept relative to exp(scale), the largest term seen so far,
+         * and rescaled whenever a larger one comes along.
+         *
+         * By PASTA, an arriving customer sees state n with probability p[n].
+         * If n >= c, there are q = n - c customers ahead of it, and it reaches
+         * a server after q + 1 exponential stages. In the stage with j customers
+         * still ahead, the queue moves on at rate c mu + j theta, while the
+         * customer itself reneges at rate theta. So it survives the stage with
+         * probability (c mu + j theta) / (c mu + (j + 1) theta), and, given that
+         * it survives, the stage lasts an exponential time with the total rate.
+         * Conditioning on survival gives the wait of the customers who are served.
+         *
+         * Without patience, the states from c up are a geometric sequence, which
+         * is summed in closed form, however large K is. With patience, the terms
+         * eventually shrink faster than geometrically, and the sum stops once
+         * the rest of the chain is NEGLIGIBLE next to the states in which
+         * customers wait.
+         */
+        double logTerm = 0;
+        double scale = 0;
+        double total = 0;
+        double balk = 0;
+        double waited = 0;
+        double served = 0;
+        double sumMean = 0;
+        double sumSecond = 0;
+        double survive = 1;
+        double stageMean = 0;
+        double stageVar = 0;
+        long last = theta > 0 ? K : c - 1;
+        for (long n = 0; n <= last; n++) {
+            if (n > 0) {
+                double death = Math.min(n, c) * mu + Math.max(n - c, 0) * theta;
+                logTerm += Math.log(lambda / death);
+            }
+            if (logTerm > scale) {
+                double shrink = Math.exp(scale - logTerm);
+                total *= shrink;
+                waited *= shrink;
+                served *= shrink;
+                sumMean *= shrink;
+                sumSecond *= shrink;
+                scale = logTerm;
+            }
+            double pn = Math.exp(logTerm - scale);
+            total += pn;
+            if (n == K) {
+                balk = pn;
+                waited += pn;
+                break;
+            }
+            if (n >= c) {
+                long ahead = n - c;
+                double moves = c * mu + ahead * theta;
+                double rate = moves + theta;
+                survive *= moves / rate;
+                stageMean += 1 / rate;
+                stageVar += 1 / (rate * rate);
+                waited += pn;
+            }
+            served += pn * survive;
+            sumMean += pn * survive * stageMean;
+            sumSecond += pn * survive * (stageVar + stageMean * stageMean);
+
+            /**
+             * Past c, the terms after this one shrink at least as fast as ratio^j.
+             * They are compared with the customers who wait, not with the total,
+             * since the moments of the wait are taken over the former alone.
+             */
+            if (n >= c) {
+                double ratio = lambda / (c * mu + (n + 1 - c) * theta);
+                if (ratio < 1 && logTerm - scale + Math.log(ratio / (1 - ratio))
+                        < Math.log(waited) - NEGLIGIBLE) {
+                    break;
+                }
+            }
+        }
+
+        double meanWait = served > 0 ? sumMean / served : 0;
+        double waitVariance = served > 0
+            ? Math.max(sumSecond / served - meanWait * meanWait, 0)
+            : 0;
+        if (theta == 0) {
+            /**
+             * p[c + q] = p[c] x^q for q = 0 .. M, with x = lambda / (c mu).
+             * Customers who see q < M wait q + 1 stages at rate c mu;
+             * those who see M balk. The moments of the wait are taken
+             * from the mixture of not waiting and waiting, rather than as
+             * E[w^2] - E[w]^2, which cancels badly when the wait is long.
+             */
+            long M = K - c;
+            double logX = Math.log(lambda / (c * mu));
+            double logC = logTerm + logX;
+            double logQueue = M > 0 ? logGeometricSum(logX, M) : Double.NEGATIVE_INFINITY;
+            double logBalk = M * logX;
+            double top = logC + Math.max(logQueue, logBalk);
+            if (top > scale) {
+                double shrink = Math.exp(scale - top);
+                total *= shrink;
+                waited *= shrink;
+                served *= shrink;
+                scale = top;
+            }
+            double queue = Math.exp(logC + logQueue - scale);
+            double notQueued = served;
+            balk = Math.exp(logC + logBalk - scale);
+            total += queue + balk;
+            waited += queue + balk;
+            served += queue;
+            if (M > 0 && served > 0) {
+                double busyRate = c * mu;
+                double stages = 1 + geometricMean(logX, M);
+                double queuedMean = stages / busyRate;
+                double queuedVariance = (stages + geometricVariance(logX, M)) / (busyRate * busyRate);
+                double queuedShare = queue / served;
+                meanWait = queuedShare * queuedMean;
+                waitVariance = queuedShare * queuedVariance
+                    + queuedShare * (notQueued / served) * queuedMean * queuedMean;
+            }
+        }
+
+        double probBalk = balk / total;
+        double probWait = waited / total;
+        double probServed = served / total;
+        double probRenege = Math.max(1 - probBalk - probServed, 0);
+
+        return new Estimate(c, K, lambda / (c * mu), probWait, probBalk, probRenege,
+                meanWait, waitVariance, exact, sc.get_nCustomers());
+    }
+
+    /**
+     * Returns the log of 1 + x + ... + x^(M - 1), for M at least 1.
+     * @param logX The log of the ratio x.
+     * @param M The number of terms.
+     */
+    static double logGeometricSum(double logX, long M) {
+        if (logX == 0) {
+            return Math.log(M);
+        } else if (logX > 0) {
+            /** (x^M - 1) / (x - 1), without computing x^M, which may overflow. */
+            return M * logX + Math.log(-Math.expm1(-M * logX)) - Math.log(Math.expm1(logX));
+        }
+        return Math.log(-Math.expm1(M * logX)) - Math.log(-Math.expm1(logX));
+    }
+
+    /**
+     * Returns the mean of q, for q in 0 .. M - 1 with probability proportional to x^q.
+     * Near x = 1 the closed form is the difference of two nearly equal
+     * large numbers, so its Taylor series about x = 1 is used instead.
+     * @param logX The log of the ratio x.
+     * @param M The number of values, at least 1.
+     */
+    static double geometricMean(double logX, long M) {
+        double b = -logX;
+        double m = M;
+        if (Math.abs(b) * m < NEAR_UNIFORM) {
+            double m2 = m * m;
+            return (m - 1) / 2 - b * (m2 - 1) / 12 + b * b * b * (m2 * m2 - 1) / 720;
+        }
+        return 1 / Math.expm1(b) - m / Math.expm1(b * m);
+    }
+
+    /**
+     * Returns the variance of q, for q in 0 .. M - 1 with probability proportional to x^q.
+     * @param logX The log of the ratio x.
+     * @param M The number of values, at least 1.
+     */
+    static double geometricVariance(double logX, long M) {
+        double b = -logX;
+        double m = M;
+        if (Math.abs(b) * m < NEAR_UNIFORM) {
+            double m2 = m * m;
+            return (m2 - 1) / 12 - b * b * (m2 * m2 - 1) / 240;
+        }
+        double whole = Math.sinh(b * m / 2);
+        double one = Math.sinh(b / 2);
+        return Math.max(1 / (4 * one * one) - m * m / (4 * whole * whole), 0);
+    }
+
+    /** Returns the number of servers, c. */
+    public int get_nServers() {
+        return this.nServers;
+    }
+
+    /** Returns the number of customers the system can hold, K. */
+    public long get_capacity() {
+        return this.capacity;
+    }
+
+    /** Returns the offered load per server, lambda / (c mu); above 1 the queues fill up. */
+    public double get_utilisation() {
+        return this.utilisation;
+    }
+
+    /** Returns the probability that an arriving customer finds every server busy. */
+    public double get_probWait() {
+        return this.probWait;
+    }
+
+    /** Returns the probability that an arriving customer finds every queue full and leaves. */
+    public double get_probBalk() {
+        return this.probBalk;
+    }
+
+    /** Returns the probability that an arriving customer joins a queue but reneges. */
+    public double get_probRenege() {
+        return this.probRenege;
+    }
+
+    /** Returns the expected average wait of customers who are served, the estimate of avgWait. */
+    public double get_avgWait() {
+        return this.meanWait;
+    }
+
+    /** Returns the variance of the wait of a customer who is served. */
+    public double get_waitVariance() {
+        return this.waitVariance;
+    }
+
+    /** Returns the expected number of customers served in the Scenario's run. */
+    public double get_nServed() {
+        return this.nCustomers * (1 - this.probBalk - this.probRenege);
+    }
+
+    /** Returns the expected number of customers not served in the Scenario's run. */
+    public double get_nNotServed() {
+        return this.nCustomers * (this.probBalk + this.probRenege);
+    }
+
+    /** Checks if the model describes the Scenario exactly, in steady state. */
+    public boolean isExact() {
+        return this.exact;
+    }
+
+    /**
+     * Checks if simulating the Scenario would tell us little beyond this estimate:
+     * either the model is exact, or customers practically never wait.
+     */
+    public boolean isSimulationUnnecessary() {
+        return this.exact || this.probWait < TRIVIAL_WAIT;
+    }
+
+    /**
+     * Returns the number of served customers needed for the sample mean
+     * of their waits to be within the given relative error of avgWait,
+     * with the confidence given by z (1.96 for 95%). This treats waits
+     * as independent, which they are not, so it is the minimum a
+     * sequential stopping rule should start from, not a guarantee.
+     * @param relativeError The acceptable error, as a fraction of avgWait.
+     * @param z The standard normal quantile of the confidence level.
+     */
+    public long requiredCustomers(double relativeError, double z) {
+        if (this.meanWait <= 0) {
+            return 0;
+        }
+        double n = this.waitVariance * z * z
+            / (relativeError * relativeError * this.meanWait * this.meanWait);
+        return (long) Math.ceil(n);
+    }
+
+    /** Returns the estimate in the form printed at the end of every run. */
+    @Override
+    public String toString() {
+        return "[" + Simulator.fdouble(this.meanWait) + " "
+            + Simulator.fdouble(this.get_nServed()) + " "
+            + Simulator.fdouble(this.get_nNotServed()) + "]";
+    }
+}
@@ -6,6 +6,9 @@ import java.lang.Comparable;
  * Models a discrete event in the simulator. 
  * This class "binds" all the involved parties in the system together,
  * and helps to track the statistics of the system.
+ * The statistics are kept per thread, like the random generators of the
+ * Customer and Server classes, so that runs on different threads can go
+ * on at once without mixing their counts.
  */
 public class Event implements Comparable<Event> {
     /** Tracks the time that the Event occurs. */
@@ -19,23 +22,35 @@ public class Event implements Comparable<Event> {
 
     /** Stores the Action that the Event instance entails. */
     private final Action action;
+
+    /** Tracks whether the Event was cancelled after it was scheduled. */
+    private boolean cancelled = false;
     
-    /** Tracks the total number of Customers that have received service. */
-    private static int nServed = 0;
+    /** The statistics of the run on the current thread. */
+    private static final ThreadLocal<Stats> stats = ThreadLocal.withInitial(Stats::new);
+
+    /** The statistics of one run. */
+    private static class Stats {
+        /** Tracks the total number of Customers that have received service. */
+        private int nServed = 0;
+
+        /** Tracks the total number of Customers that left without receiving service. */
+        private int nNotServed = 0;
 
-    /** Tracks the total number of Customers that left without receiving service. */
-    private static int nNotServed = 0;
+        /** Tracks the total time spent waiting by Customers that received service. */
+        private double totalWait = 0;
 
-    /** Tracks the total time spent waiting by Customers that received service. */
-    private static double totalWait = 0;
+        /** Tracks the average time spent waiting by Customers that received service. */
+        private double avgWait = 0;
 
-    /** Tracks the average time spent waiting by Customers that received service. */
-    private static double avgWait = 0;
+        /** Tracks the number of Customers that left a queue before being served. */
+        private int nReneged = 0;
+    }
     
     /** 
      * Constructor instantiates Events in the cases where 
-     * Customers are served, wait or done.
-     * SERVED, WAITS and DONE are the only Actions that
+     * Customers are served, wait, are done or renege.
+     * SERVED, WAITS, DONE and RENEGES are the only Actions that
      * involve both a Customer and a Server. 
      * Thus this constructor has to instantiate an Event
      * with both a Customer and a Server.
@@ -56,10 +71,11 @@ public class Event implements Comparable<Event> {
         this.server = server;
         this.action = action;
         if (action == Action.SERVED) {
-            Event.nServed++;
-            Event.totalWait = Event.totalWait + 
+            Stats stats = Event.stats.get();
+            stats.nServed++;
+            stats.totalWait = stats.totalWait + 
                 (time - customer.get_arrivaltime());
-            Event.avgWait = Event.totalWait / (Event.nServed);
+            stats.avgWait = stats.totalWait / (stats.nServed);
         }
     }
     
@@ -80,7 +96,7 @@ public class Event implements Comparable<Event> {
         this.customer = customer;
         this.action = action;
         if (action == Action.LEAVES) {
-            Event.nNotServed++;
+            Event.stats.get().nNotServed++;
         }
         this.server = null; 
     }
@@ -109,28 +125,98 @@ public class Event implements Comparable<Event> {
      * in the Customer and Server classes. Within these classes,
      * these parameters are used to simulate the random behaviour of
      * Servers and Customers respectively.
+     * The service and resting rates are the base rates of the generator;
+     * each Server rescales them to the rates of its own pool, 
+     * and decides whether to rest using the rest probability of its pool.
      * @param seed the random seed.
      * @param arrivalRate the arrival rate of customers.
-     * @param serviceRate the service rate of servers.
-     * @param restingRate the resting rate of servers.
-     * @param probRest the probability a given server rests. 
-     * This will be fed to the Server class, where it will be stored
-     * as a static attribute, allowing the class to simulate 
-     * a Server's random decision to rest.
+     * @param serviceRate the base service rate of servers.
+     * @param restingRate the base resting rate of servers.
      * @param probGreedy the probability a given customer is greedy.
      * This will be fed to the Customer class, where it will be stored
      * as a static attribute, allowing the class to simulate randomly
      * occuring greedy Customers.
      */
     public static void setRg(int seed, double arrivalRate, 
-            double serviceRate, double restingRate, 
-            double probRest, double probGreedy) {
+            double serviceRate, double restingRate, double probGreedy) {
         RandomGenerator rg = new RandomGenerator(seed, arrivalRate, 
                 serviceRate, restingRate);
-        Server.setRg(rg, probRest);
+        Server.setRg(rg, serviceRate, restingRate);
         Customer.setRg(rg, probGreedy);
     }
 
+    /**
+     * Sets the parameters for random generation like setRg,
+     * but skips a different number of draws in each random stream.
+     * The RandomGenerator seeds its streams with consecutive seeds,
+     * and java.util.Random with nearby seeds produces nearly shifted
+     * copies of the same sequence: the k-th draws of two streams are
+     * strongly dependent. Over a whole run the streams are drawn at
+     * different rates, so this washes out, but in the many short runs
+     * restored from a copy of the state, the k-th arrival races the
+     * k-th service, and the race is rigged. Skipping 1 to 5 draws
+     * makes the draws that race come from different positions.
+     * @param seed the random seed.
+     * @param arrivalRate the arrival rate of customers.
+     * @param serviceRate the base service rate of servers.
+     * @param restingRate the base resting rate of servers.
+     * @param probGreedy the probability a given customer is greedy.
+     */
+    static void setIndependentRg(int seed, double arrivalRate,
+            double serviceRate, double restingRate, double probGreedy) {
+        RandomGenerator rg = new RandomGenerator(seed, arrivalRate,
+                serviceRate, restingRate);
+        /** Each stream skips a different number of draws, so that the draws that race never share a position. */
+        skip(rg::genInterArrivalTime, 1);
+        skip(rg::genServiceTime, 2);
+        skip(rg::genRandomRest, 3);
+        skip(rg::genRestPeriod, 4);
+        skip(rg::genCustomerType, 5);
+        Server.setRg(rg, serviceRate, restingRate);
+        Customer.setRg(rg, probGreedy);
+    }
+
+    /**
+     * Discards draws from a random stream.
+     * @param draw Draws once from the stream.
+     * @param n The number of draws to discard.
+     */
+    private static void skip(Runnable draw, int n) {
+        for (int i = 0; i < n; i++) {
+            draw.run();
+        }
+    }
+
+    /** 
+     * Resets the statistics of the system, 
+     * so that the next simulation on this thread starts counting from zero.
+     */
+    static void resetStats() {
+        Event.stats.set(new Stats());
+    }
+
+    /** 
+     * Records that a Customer reneged. 
+     * Unlike other Actions, this is not counted when the Event is created,
+     * since a RENEGES Event is cancelled if the Customer is served first.
+     * A Customer who reneges is also counted as not served.
+     */
+    static void countRenege() {
+        Stats stats = Event.stats.get();
+        stats.nReneged++;
+        stats.nNotServed++;
+    }
+
+    /** Cancels the Event. Only EventQueue should call this. */
+    void cancel() {
+        this.cancelled = true;
+    }
+
+    /** Checks if the Event was cancelled after it was scheduled. */
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
 
     @Override
     public String toString() {
@@ -158,6 +244,10 @@ public class Event implements Comparable<Event> {
                 + this.customer.toString()
                 + " waits to be served by "
                 + this.server.toString();
+        } else if (this.action == Action.RENEGES) {
+            return output += " "
+                + this.customer.toString()
+                + " reneges";
         } else {
             System.err.println("Error: shouldn't be calling toString() on Event of type " + this.action);
             return null;
@@ -186,7 +276,7 @@ public class Event implements Comparable<Event> {
     
     /** Returns the number of customer served in the system. */
     public static int get_nServed() {
-        return Event.nServed;
+        return Event.stats.get().nServed;
     }
     
     /** 
@@ -194,7 +284,15 @@ public class Event implements Comparable<Event> {
      * without being served in the system.
      */
     public static int get_nNotServed() {
-        return Event.nNotServed;
+        return Event.stats.get().nNotServed;
+    }
+
+    /** 
+     * Returns the number of customers who left a queue 
+     * before being served. These are also counted as not served.
+     */
+    public static int get_nReneged() {
+        return Event.stats.get().nReneged;
     }
 
     /** 
@@ -202,7 +300,7 @@ public class Event implements Comparable<Event> {
      * received service spent waiting.
      */
     public static double get_avgWait() {
-        return Event.avgWait;
+        return Event.stats.get().avgWait;
     }
     
     /** 
@@ -213,6 +311,10 @@ public class Event implements Comparable<Event> {
      * If there is a tie, Events whose customers have a smaller id are higher in priority.
      * If there is still a tie, the relative priority of the Actions 
      * associated with the Events is used to compare the Events.
+     * SERVER_REST and SERVER_BACK involve no customer, so on a tie with
+     * either of them the priority of the Actions decides first,
+     * and then the ids of the servers. Such ties happen when a live
+     * arrival is late, and arrives at the time of the last Event.
      * @param other The other event to compare to.
      */
     @Override
@@ -222,12 +324,18 @@ public class Event implements Comparable<Event> {
         if (timeDiff != 0) {
             return timeDiff;
         }
+        int priorityDiff = this.get_action().get_priority() - other.get_action().get_priority();
+        if (this.get_customer() == null || other.get_customer() == null) {
+            if (priorityDiff != 0) {
+                return priorityDiff;
+            }
+            return this.get_server().get_id() - other.get_server().get_id();
+        }
         int idDiff = this.get_customer().get_id() 
             - other.get_customer().get_id();
         if (idDiff != 0) {
             return idDiff;
         }
-        int priorityDiff = this.get_action().get_priority() - other.get_action().get_priority();
         return priorityDiff;
     }
 
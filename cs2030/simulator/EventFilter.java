@@ -0,0 +1,116 @@
+package cs2030.simulator;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Selects which Events are delivered to an EventListener.
+ * A filter can restrict Events by Action, by the Server or Customer
+ * they pertain to, and by a window of simulated time.
+ * EventFilter is immutable: each restriction returns a new filter,
+ * so filters can be built up from EventFilter.all(), for example
+ * EventFilter.all().actions(Action.SERVED).window(100, 200).
+ */
+public class EventFilter {
+    /** Used for the server and customer ids when they are not restricted. */
+    private static final int ANY = -1;
+
+    /** The Actions to deliver. */
+    private final Set<Action> actions;
+
+    /** The id of the Server whose Events to deliver, or ANY. */
+    private final int serverId;
+
+    /** The id of the Customer whose Events to deliver, or ANY. */
+    private final int customerId;
+
+    /** The earliest time of the Events to deliver. */
+    private final double from;
+
+    /** The time before which Events are delivered. */
+    private final double to;
+
+    /** Private constructor that returns a new EventFilter. */
+    private EventFilter(Set<Action> actions, int serverId, int customerId,
+            double from, double to) {
+        this.actions = actions;
+        this.serverId = serverId;
+        this.customerId = customerId;
+        this.from = from;
+        this.to = to;
+    }
+
+    /** Returns a filter that lets every Event through. */
+    public static EventFilter all() {
+        return new EventFilter(EnumSet.allOf(Action.class), ANY, ANY,
+                Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Returns a copy of this filter that only lets the given Actions through.
+     * @param first An Action to let through.
+     * @param rest Any other Actions to let through.
+     */
+    public EventFilter actions(Action first, Action... rest) {
+        return new EventFilter(EnumSet.of(first, rest), this.serverId,
+                this.customerId, this.from, this.to);
+    }
+
+    /**
+     * Returns a copy of this filter that only lets through Events
+     * pertaining to the Server with the given id.
+     * @param id The id of the Server.
+     */
+    public EventFilter server(int id) {
+        return new EventFilter(this.actions, id, this.customerId, this.from, this.to);
+    }
+
+    /**
+     * Returns a copy of this filter that only lets through Events
+     * pertaining to the Customer with the given id.
+     * @param id The id of the Customer.
+     */
+    public EventFilter customer(int id) {
+        return new EventFilter(this.actions, this.serverId, id, this.from, this.to);
+    }
+
+    /**
+     * Returns a copy of this filter that only lets through Events
+     * that happen at or after from, and before to.
+     * @param from The start of the window.
+     * @param to The end of the window.
+     */
+    public EventFilter window(double from, double to) {
+        return new EventFilter(this.actions, this.serverId, this.customerId, from, to);
+    }
+
+    /**
+     * Checks if the filter lets the recorded Event through.
+     * @param record The record of the Event to check.
+     */
+    public boolean test(EventRecord record) {
+        return this.test(record.get_time(), record.get_action(),
+                record.get_serverId(), record.get_customerId());
+    }
+
+    /**
+     * Checks if the filter lets the Event through,
+     * before any record of it is made.
+     * @param event The Event to check.
+     */
+    boolean test(Event event) {
+        Server server = event.get_server();
+        Customer customer = event.get_customer();
+        return this.test(event.get_time(), event.get_action(),
+                server == null ? EventRecord.NONE : server.get_id(),
+                customer == null ? EventRecord.NONE : customer.get_id());
+    }
+
+    /** Checks if the filter lets through an Event with the given fields. */
+    private boolean test(double time, Action action, int serverId, int customerId) {
+        if (time < this.from || time >= this.to || !this.actions.contains(action)) {
+            return false;
+        }
+        return (this.serverId == ANY || serverId == this.serverId)
+            && (this.customerId == ANY || customerId == this.customerId);
+    }
+}
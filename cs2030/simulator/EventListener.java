@@ -0,0 +1,27 @@
+package cs2030.simulator;
+import java.util.List;
+
+/**
+ * Receives the Events of a simulation as they happen, in batches of
+ * immutable EventRecords, so that a listener cannot change the run.
+ * Listeners are registered with Simulator.subscribe, and are called on the
+ * thread running the simulation, so a slow listener slows the simulation
+ * down rather than letting undelivered Events pile up.
+ */
+@FunctionalInterface
+public interface EventListener {
+    /**
+     * Called with the next batch of Events that passed the listener's filter,
+     * in the order they happened. The list belongs to the listener,
+     * and is never modified by the Simulator afterwards.
+     * @param batch The records of the Events, oldest first.
+     */
+    void onEvents(List<EventRecord> batch);
+
+    /**
+     * Called once at the end of every run, after the last batch.
+     * @param stats The statistics of the run.
+     */
+    default void onComplete(Statistics stats) {
+    }
+}
@@ -0,0 +1,55 @@
+package cs2030.simulator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * Adapts the batches of an EventListener to a java.util.concurrent.Flow.Publisher,
+ * so that records of Events can be consumed asynchronously by Flow.Subscribers.
+ * The records are immutable, so subscribers can read them on other threads
+ * while the simulation goes on.
+ * Each subscriber receives batches on the given executor, and can request
+ * as many as it is ready for. Once a subscriber's buffer of batches is full,
+ * the simulation blocks until it catches up, so a slow consumer applies
+ * backpressure to the simulation instead of dropping Events.
+ * Like any EventListener, the publisher receives the Events of every run
+ * of the Simulator it is subscribed to, one run after another. Its subscribers
+ * are only completed when it is closed, after the last run it should publish.
+ */
+public class EventPublisher implements EventListener, Flow.Publisher<List<EventRecord>>,
+        AutoCloseable {
+    /** Buffers and delivers batches to the subscribers. */
+    private final SubmissionPublisher<List<EventRecord>> publisher;
+
+    /**
+     * Constructor returns a new EventPublisher.
+     * @param executor The executor that delivers batches to subscribers.
+     * @param maxBufferedBatches The number of batches buffered per subscriber
+     * before the simulation blocks.
+     */
+    public EventPublisher(Executor executor, int maxBufferedBatches) {
+        this.publisher = new SubmissionPublisher<>(executor, maxBufferedBatches);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<EventRecord>> subscriber) {
+        this.publisher.subscribe(subscriber);
+    }
+
+    @Override
+    public void onEvents(List<EventRecord> batch) {
+        this.publisher.submit(batch);
+    }
+
+    /**
+     * Completes every subscriber once the batches already submitted are delivered.
+     * The Simulator must not be run again afterwards, since the batches of
+     * a further run would have nowhere to go, unless the publisher is
+     * unsubscribed from it first.
+     */
+    @Override
+    public void close() {
+        this.publisher.close();
+    }
+}
@@ -0,0 +1,90 @@
+package cs2030.simulator;
+import java.util.PriorityQueue;
+
+/**
+ * The calendar of pending Events, ordered by their natural ordering.
+ * Events can be cancelled after they are scheduled. Cancelled Events
+ * are not removed from the heap straight away, which would take O(n) time,
+ * but are skipped when they reach the front of the calendar.
+ * If cancelled Events ever make up more than half of the calendar,
+ * they are swept out in one pass, so the calendar never holds more than
+ * twice as many Events as are actually pending.
+ */
+public class EventQueue {
+    /** Stores every scheduled Event, including cancelled ones not yet swept out. */
+    private final PriorityQueue<Event> events;
+
+    /** Tracks how many of the Events in the heap have been cancelled. */
+    private int nCancelled;
+
+    /** Constructor returns an empty EventQueue. */
+    public EventQueue() {
+        this.events = new PriorityQueue<>();
+        this.nCancelled = 0;
+    }
+
+    /**
+     * Schedules an Event.
+     * @param event The Event to schedule.
+     * @return The same Event, which can later be passed to cancel().
+     */
+    public Event add(Event event) {
+        this.events.add(event);
+        return event;
+    }
+
+    /**
+     * Cancels a pending Event, so that it is never returned by poll().
+     * Cancelling an Event that was already cancelled has no effect,
+     * but an Event that has already been polled must not be cancelled.
+     * @param event The Event to cancel.
+     */
+    public void cancel(Event event) {
+        if (event.isCancelled()) {
+            return;
+        }
+        event.cancel();
+        this.nCancelled++;
+        if (this.nCancelled > this.events.size() / 2) {
+            this.events.removeIf(Event::isCancelled);
+            this.nCancelled = 0;
+        }
+    }
+
+    /**
+     * Removes and returns the earliest Event that has not been cancelled,
+     * or null if there are none.
+     */
+    public Event poll() {
+        Event event = this.events.poll();
+        while (event != null && event.isCancelled()) {
+            this.nCancelled--;
+            event = this.events.poll();
+        }
+        return event;
+    }
+
+    /**
+     * Returns the earliest Event that has not been cancelled, without removing it,
+     * or null if there are none.
+     */
+    public Event peek() {
+        Event event = this.events.peek();
+        while (event != null && event.isCancelled()) {
+            this.events.poll();
+            this.nCancelled--;
+            event = this.events.peek();
+        }
+        return event;
+    }
+
+    /** Returns the number of Events that are pending and not cancelled. */
+    public int size() {
+        return this.events.size() - this.nCancelled;
+    }
+
+    /** Checks if there are no pending Events that have not been cancelled. */
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+}
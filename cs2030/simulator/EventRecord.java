@@ -0,0 +1,91 @@
+package cs2030.simulator;
+
+/**
+ * An immutable record of an Event, as delivered to an EventListener.
+ * The Events of the engine refer to the live Servers and Customers of
+ * the run, which keep changing as it goes on, so listeners are given
+ * a copy of what they need instead: the time, the Action, and the ids
+ * of the Customer and Server involved. A record can be kept, or read on
+ * another thread, without affecting the run or racing with it.
+ */
+public class EventRecord {
+    /** Used for the customer or server id when the Event involves none. */
+    public static final int NONE = 0;
+
+    /** The time that the Event occurred. */
+    private final double time;
+
+    /** The Action that the Event entailed. */
+    private final Action action;
+
+    /** The id of the Customer involved, or NONE. */
+    private final int customerId;
+
+    /** Whether the Customer involved is greedy; false if there is none. */
+    private final boolean greedy;
+
+    /** The id of the Server involved, or NONE. */
+    private final int serverId;
+
+    /**
+     * Private constructor that returns a new EventRecord.
+     * @param time The time that the Event occurred.
+     * @param action The Action that the Event entailed.
+     * @param customerId The id of the Customer involved, or NONE.
+     * @param greedy Whether the Customer involved is greedy.
+     * @param serverId The id of the Server involved, or NONE.
+     */
+    private EventRecord(double time, Action action, int customerId,
+            boolean greedy, int serverId) {
+        this.time = time;
+        this.action = action;
+        this.customerId = customerId;
+        this.greedy = greedy;
+        this.serverId = serverId;
+    }
+
+    /**
+     * Static factory method that returns a record of an Event as it is now.
+     * @param event The Event to record.
+     */
+    static EventRecord of(Event event) {
+        Customer customer = event.get_customer();
+        Server server = event.get_server();
+        return new EventRecord(event.get_time(), event.get_action(),
+                customer == null ? NONE : customer.get_id(),
+                customer != null && customer.isGreedy(),
+                server == null ? NONE : server.get_id());
+    }
+
+    /** Returns the time that the Event occurred. */
+    public double get_time() {
+        return this.time;
+    }
+
+    /** Returns the Action that the Event entailed. */
+    public Action get_action() {
+        return this.action;
+    }
+
+    /** Returns the id of the Customer involved, or NONE. */
+    public int get_customerId() {
+        return this.customerId;
+    }
+
+    /** Checks if the Customer involved is greedy; false if there is none. */
+    public boolean isGreedy() {
+        return this.greedy;
+    }
+
+    /** Returns the id of the Server involved, or NONE. */
+    public int get_serverId() {
+        return this.serverId;
+    }
+
+    @Override
+    public String toString() {
+        return Simulator.fdouble(this.time) + " " + this.action
+            + " customer " + this.customerId + (this.greedy ? "(greedy)" : "")
+            + " server " + this.serverId;
+    }
+}
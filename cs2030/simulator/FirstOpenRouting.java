@@ -0,0 +1,20 @@
+package cs2030.simulator;
+
+/**
+ * The original routing of the simulator, and the default policy.
+ * Typical customers join the first queue that is not full,
+ * while greedy customers join the shortest queue.
+ */
+class FirstOpenRouting implements RoutingPolicy {
+    @Override
+    public ServerQueue chooseQueue(Customer customer, double time, ServerIndex servers) {
+        return customer.isGreedy()
+            ? servers.shortestQueue()
+            : servers.firstOpenQueue(0);
+    }
+
+    @Override
+    public String get_name() {
+        return "first-open";
+    }
+}
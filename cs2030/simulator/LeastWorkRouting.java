@@ -0,0 +1,19 @@
+package cs2030.simulator;
+
+/**
+ * Least-expected-work: every customer joins the queue where they
+ * can expect to start service soonest, judging by when its servers
+ * are next free and by the mean service time of the customers ahead.
+ * See ServerIndex.leastWorkQueue for how this is estimated.
+ */
+class LeastWorkRouting implements RoutingPolicy {
+    @Override
+    public ServerQueue chooseQueue(Customer customer, double time, ServerIndex servers) {
+        return servers.leastWorkQueue();
+    }
+
+    @Override
+    public String get_name() {
+        return "least-work";
+    }
+}
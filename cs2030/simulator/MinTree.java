@@ -0,0 +1,107 @@
+package cs2030.simulator;
+import java.util.Arrays;
+
+/**
+ * A segment tree over a fixed number of slots, each holding a double,
+ * that keeps the minimum of every range of slots up to date.
+ * Updating a slot, and finding the leftmost slot whose value
+ * is at most some bound, both take O(log n) time.
+ * Slots that should never be picked hold Double.POSITIVE_INFINITY.
+ * Used by ServerQueue and ServerIndex to route customers
+ * without scanning every server.
+ */
+class MinTree {
+    /** The value of a slot that should never be picked. */
+    static final double NONE = Double.POSITIVE_INFINITY;
+
+    /** The number of slots in use. */
+    private final int n;
+
+    /** The number of leaves, the smallest power of two that is at least n. */
+    private final int leaves;
+
+    /** The tree itself: node i has children 2i and 2i+1, and leaves start at leaves. */
+    private final double[] tree;
+
+    /**
+     * Constructor returns a MinTree of n slots, all holding the given value.
+     * @param n The number of slots.
+     * @param initial The initial value of every slot.
+     */
+    MinTree(int n, double initial) {
+        int leaves = 1;
+        while (leaves < n) {
+            leaves *= 2;
+        }
+        this.n = n;
+        this.leaves = leaves;
+        this.tree = new double[2 * leaves];
+        Arrays.fill(this.tree, NONE);
+        for (int i = 0; i < n; i++) {
+            this.tree[leaves + i] = initial;
+        }
+        for (int i = leaves - 1; i > 0; i--) {
+            this.tree[i] = Math.min(this.tree[2 * i], this.tree[2 * i + 1]);
+        }
+    }
+
+    /** Returns the number of slots. */
+    int size() {
+        return this.n;
+    }
+
+    /** Returns the value held in slot i. */
+    double get(int i) {
+        return this.tree[this.leaves + i];
+    }
+
+    /** Sets the value held in slot i. */
+    void set(int i, double value) {
+        int node = this.leaves + i;
+        if (this.tree[node] == value) {
+            return;
+        }
+        this.tree[node] = value;
+        for (node /= 2; node > 0; node /= 2) {
+            double min = Math.min(this.tree[2 * node], this.tree[2 * node + 1]);
+            if (this.tree[node] == min) {
+                return;
+            }
+            this.tree[node] = min;
+        }
+    }
+
+    /** Returns the smallest value held in any slot. */
+    double min() {
+        return this.tree[1];
+    }
+
+    /** Returns the leftmost slot holding the smallest value, or -1 if every slot is NONE. */
+    int argmin() {
+        return this.tree[1] == NONE ? -1 : this.firstAtMost(this.tree[1], 0);
+    }
+
+    /**
+     * Returns the leftmost slot, at or after from,
+     * whose value is at most bound, or -1 if there is none.
+     */
+    int firstAtMost(double bound, int from) {
+        if (from >= this.n) {
+            return -1;
+        }
+        return this.firstAtMost(bound, from, 1, 0, this.leaves);
+    }
+
+    /** Searches the subtree of node, which covers slots lo (inclusive) to hi (exclusive). */
+    private int firstAtMost(double bound, int from, int node, int lo, int hi) {
+        if (hi <= from || this.tree[node] > bound) {
+            return -1;
+        }
+        if (hi - lo == 1) {
+            return lo;
+        }
+        int mid = (lo + hi) / 2;
+        int left = this.firstAtMost(bound, from, 2 * node, lo, mid);
+        return left >= 0 ? left : this.firstAtMost(bound, from, 2 * node + 1, mid, hi);
+    }
+}
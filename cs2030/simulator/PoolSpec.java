@@ -0,0 +1,176 @@
+package cs2030.simulator;
+
+/**
+ * Describes a pool of identical Servers in a Scenario.
+ * Every server in a pool shares the same service rate, rest policy
+ * and maximum queue length. A pool either gives each of its servers
+ * a dedicated queue, or lets all of them serve one shared queue.
+ * By default, human servers keep dedicated queues and may rest,
+ * while self-checkout counters share a single queue and never rest,
+ * but any pool can override these defaults.
+ * Servers are numbered in the order their pools are declared,
+ * so the ids of a pool's servers are always contiguous.
+ * Pools do not have random streams of their own: every Server draws from
+ * the one RandomGenerator of the run, in the order its Events happen, and
+ * rescales service times and rest periods from the base rates of the
+ * Scenario to the rates of its pool. A rescaled exponential draw is an
+ * exact draw at the new rate, but adding, removing or changing one pool
+ * changes the draws of every other pool. Sharing the stream is what keeps
+ * a run of the ten positional parameters identical to one from before
+ * pools existed.
+ * PoolSpec is immutable, and is only a description:
+ * the Servers themselves are created afresh by the Simulator on every run.
+ */
+public class PoolSpec {
+    /** The name the pool was declared under in the scenario. */
+    private final String name;
+
+    /** Tracks if the pool is made up of human servers or self-checkout counters. */
+    private final boolean isHuman;
+
+    /** The number of servers in the pool. */
+    private final int nServers;
+
+    /** The rate at which each server in the pool serves customers. */
+    private final double serviceRate;
+
+    /** The probability that a server in the pool rests after serving a customer. */
+    private final double probRest;
+
+    /** The rate at which a resting server in the pool comes back. */
+    private final double restingRate;
+
+    /** The maximum length of each queue in the pool. */
+    private final int Qmax;
+
+    /** Whether all servers in the pool serve a single shared queue. */
+    private final boolean sharedQueue;
+
+    /**
+     * Private constructor that validates its arguments and returns a new PoolSpec.
+     * @throws IllegalArgumentException if any of the values is out of range.
+     */
+    private PoolSpec(String name, boolean isHuman, int nServers, double serviceRate,
+            double probRest, double restingRate, int Qmax, boolean sharedQueue) {
+        String prefix = "pool." + name + ".";
+        if (nServers < 0) {
+            throw new IllegalArgumentException(prefix + "servers must not be negative");
+        }
+        if (!(serviceRate > 0)) {
+            throw new IllegalArgumentException(prefix + "service.rate must be positive");
+        }
+        if (!(probRest >= 0 && probRest <= 1)) {
+            throw new IllegalArgumentException(prefix + "rest.prob must be between 0 and 1");
+        }
+        if (probRest > 0 && !(restingRate > 0)) {
+            throw new IllegalArgumentException(prefix
+                    + "rest.rate must be positive when rest.prob is not 0");
+        }
+        if (Qmax < 0) {
+            throw new IllegalArgumentException(prefix + "queue.max must not be negative");
+        }
+        this.name = name;
+        this.isHuman = isHuman;
+        this.nServers = nServers;
+        this.serviceRate = serviceRate;
+        this.probRest = probRest;
+        this.restingRate = restingRate;
+        this.Qmax = Qmax;
+        this.sharedQueue = sharedQueue;
+    }
+
+    /**
+     * Static factory method that returns a pool of human servers,
+     * each with a dedicated queue.
+     * @param name The name of the pool.
+     * @param nServers The number of servers in the pool.
+     * @param serviceRate The service rate of each server.
+     * @param probRest The probability that a server rests after serving a customer.
+     * @param restingRate The resting rate of each server.
+     * @param Qmax The maximum length of each queue.
+     */
+    public static PoolSpec human(String name, int nServers, double serviceRate,
+            double probRest, double restingRate, int Qmax) {
+        return new PoolSpec(name, true, nServers, serviceRate,
+                probRest, restingRate, Qmax, false);
+    }
+
+    /**
+     * Static factory method that returns a pool of self-checkout counters,
+     * which share one queue and never rest.
+     * @param name The name of the pool.
+     * @param nServers The number of counters in the pool.
+     * @param serviceRate The service rate of each counter.
+     * @param Qmax The maximum length of the shared queue.
+     */
+    public static PoolSpec selfCheckout(String name, int nServers,
+            double serviceRate, int Qmax) {
+        return new PoolSpec(name, false, nServers, serviceRate, 0, 0, Qmax, true);
+    }
+
+    /**
+     * Returns a copy of this PoolSpec with a different rest policy.
+     * @param probRest The probability that a server rests after serving a customer.
+     * @param restingRate The resting rate of each server.
+     */
+    public PoolSpec withRest(double probRest, double restingRate) {
+        return new PoolSpec(this.name, this.isHuman, this.nServers, this.serviceRate,
+                probRest, restingRate, this.Qmax, this.sharedQueue);
+    }
+
+    /**
+     * Returns a copy of this PoolSpec whose servers either share one queue,
+     * or each keep a dedicated queue.
+     * @param sharedQueue Whether the servers share one queue.
+     */
+    public PoolSpec withSharedQueue(boolean sharedQueue) {
+        return new PoolSpec(this.name, this.isHuman, this.nServers, this.serviceRate,
+                this.probRest, this.restingRate, this.Qmax, sharedQueue);
+    }
+
+    /** Returns the name of the pool. */
+    public String get_name() {
+        return this.name;
+    }
+
+    /** Checks if the pool is made up of human servers or self-checkout counters. */
+    public boolean isHuman() {
+        return this.isHuman;
+    }
+
+    /** Returns the number of servers in the pool. */
+    public int get_nServers() {
+        return this.nServers;
+    }
+
+    /** Returns the service rate of each server in the pool. */
+    public double get_serviceRate() {
+        return this.serviceRate;
+    }
+
+    /** Returns the probability that a server in the pool rests. */
+    public double get_probRest() {
+        return this.probRest;
+    }
+
+    /** Returns the resting rate of each server in the pool. */
+    public double get_restingRate() {
+        return this.restingRate;
+    }
+
+    /** Returns the maximum length of each queue in the pool. */
+    public int get_Qmax() {
+        return this.Qmax;
+    }
+
+    /** Checks if all servers in the pool serve a single shared queue. */
+    public boolean hasSharedQueue() {
+        return this.sharedQueue;
+    }
+
+    @Override
+    public String toString() {
+        return this.name + "(" + (this.isHuman ? "human" : "self-check")
+            + " x" + this.nServers + ")";
+    }
+}
@@ -0,0 +1,49 @@
+package cs2030.simulator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Power-of-d-choices: every customer samples d queues at random
+ * and joins the shortest of them that is not full.
+ * If every sampled queue is full, the customer joins
+ * the shortest queue overall, so that customers only leave
+ * when every queue is full, as under every other policy.
+ */
+class PowerOfDRouting implements RoutingPolicy {
+    /** The number of queues each customer samples. */
+    private final int d;
+
+    /** Stores the random number generator used to sample queues. */
+    private final Random rng;
+
+    /**
+     * Constructor returns a new PowerOfDRouting.
+     * @param d The number of queues each customer samples.
+     * @param seed The seed for sampling queues.
+     */
+    PowerOfDRouting(int d, int seed) {
+        this.d = d;
+        this.rng = new Random(seed);
+    }
+
+    @Override
+    public ServerQueue chooseQueue(Customer customer, double time, ServerIndex servers) {
+        List<ServerQueue> queues = servers.get_queues();
+        ServerQueue best = null;
+        for (int i = 0; i < this.d && !queues.isEmpty(); i++) {
+            ServerQueue queue = queues.get(this.rng.nextInt(queues.size()));
+            if (!queue.isFull() && (best == null
+                        || queue.get_Qlen() < best.get_Qlen()
+                        || (queue.get_Qlen() == best.get_Qlen()
+                            && queue.get_position() < best.get_position()))) {
+                best = queue;
+            }
+        }
+        return best != null ? best : servers.shortestQueue();
+    }
+
+    @Override
+    public String get_name() {
+        return "power-of-d";
+    }
+}
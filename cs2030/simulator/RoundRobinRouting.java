@@ -0,0 +1,27 @@
+package cs2030.simulator;
+
+/**
+ * Round-robin: customers are sent to the queues in turn,
+ * skipping any queue that is full.
+ */
+class RoundRobinRouting implements RoutingPolicy {
+    /** The position of the queue that should be tried next. */
+    private int next = 0;
+
+    @Override
+    public ServerQueue chooseQueue(Customer customer, double time, ServerIndex servers) {
+        ServerQueue queue = servers.firstOpenQueue(this.next);
+        if (queue == null) {
+            queue = servers.firstOpenQueue(0);
+        }
+        if (queue != null) {
+            this.next = queue.get_position() + 1;
+        }
+        return queue;
+    }
+
+    @Override
+    public String get_name() {
+        return "round-robin";
+    }
+}
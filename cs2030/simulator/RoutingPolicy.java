@@ -0,0 +1,55 @@
+package cs2030.simulator;
+import java.util.List;
+
+/**
+ * Decides which queue an arriving customer joins when no server is idle.
+ * Every policy is work-conserving: the Simulator always hands a customer
+ * to an idle server first, if there is one, and only asks the policy
+ * otherwise. A policy returns null when the customer should leave,
+ * which must only happen when every queue is full.
+ * Policies may keep state, such as a round-robin cursor,
+ * so a new policy is created for every run.
+ * Every policy answers in O(log S) time or better,
+ * using the indexes kept by ServerIndex.
+ */
+public interface RoutingPolicy {
+    /** The names of the available policies, as used in scenario files. */
+    List<String> NAMES = List.of("first-open", "shortest-queue",
+            "power-of-d", "least-work", "round-robin");
+
+    /**
+     * Returns the queue the customer should join, or null if every queue is full.
+     * @param customer The arriving customer.
+     * @param time The time the customer arrives.
+     * @param servers The index of every queue in the system.
+     */
+    ServerQueue chooseQueue(Customer customer, double time, ServerIndex servers);
+
+    /** Returns the name of the policy, as used in scenario files. */
+    String get_name();
+
+    /**
+     * Static factory method that returns a new policy by name.
+     * @param name One of NAMES.
+     * @param d The number of queues sampled by power-of-d.
+     * @param seed The seed for policies that make random choices.
+     * @throws IllegalArgumentException if there is no policy with the given name.
+     */
+    static RoutingPolicy of(String name, int d, int seed) {
+        switch (name) {
+        case "first-open":
+            return new FirstOpenRouting();
+        case "shortest-queue":
+            return new ShortestQueueRouting();
+        case "power-of-d":
+            return new PowerOfDRouting(d, seed);
+        case "least-work":
+            return new LeastWorkRouting();
+        case "round-robin":
+            return new RoundRobinRouting();
+        default:
+            throw new IllegalArgumentException("routing must be one of "
+                    + NAMES + ", not " + name);
+        }
+    }
+}
@@ -0,0 +1,534 @@
+package cs2030.simulator;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Models the complete, validated configuration of one simulation.
+ * A Scenario can be built from the ten positional parameters that
+ * Main reads from standard input, or loaded from a scenario file
+ * in the java.util.Properties format, for example:
+ *
+ * <pre>
+ * seed = 1
+ * queue.max = 2
+ * customers.count = 20
+ * customers.arrival.rate = 1.0
+ * customers.greedy.prob = 0.9
+ * customers.patience.rate = 0.5
+ * service.rate = 1.0
+ * rest.rate = 0.1
+ * rest.prob = 0.5
+ * pools = counter, kiosk
+ * pool.counter.kind = human
+ * pool.counter.servers = 2
+ * pool.kiosk.kind = self-check
+ * pool.kiosk.servers = 1
+ * pool.kiosk.service.rate = 0.5
+ * routing = first-open
+ * splitting.levels = 4, 5, 6
+ * splitting.effort = 1000
+ * output.trace = true
+ * output.summary.interval = 10
+ * output.summary.file = summary.txt
+ * live.speed = 60
+ * </pre>
+ *
+ * The top-level service.rate, rest.rate, rest.prob and queue.max
+ * are the defaults for every pool, and each pool may override them
+ * with pool.NAME.service.rate, pool.NAME.rest.rate, pool.NAME.rest.prob
+ * and pool.NAME.queue.max. A pool's queue may also be set to
+ * shared or dedicated with pool.NAME.queue.
+ * Self-check pools never rest unless pool.NAME.rest.prob is given.
+ * Waiting customers renege after an exponentially distributed patience
+ * with the rate customers.patience.rate; the default of 0 means
+ * customers wait for as long as it takes.
+ * The routing key picks one of the RoutingPolicy names, and defaults to
+ * first-open; routing.d sets the number of queues sampled by power-of-d.
+ * splitting.levels and splitting.effort configure the Splitting estimate
+ * of how often customers balk; they do not affect an ordinary run.
+ * output.summary.interval, if positive, adds a summary row for every
+ * interval of simulated time, written to output.summary.file if given,
+ * or to the output of the run otherwise.
+ * live.speed is the number of units of simulated time that pass per second
+ * of wall-clock time when the Simulator is run live, fed by an ArrivalRing;
+ * it defaults to 1, and may be Infinity to run as fast as possible.
+ * Every value is checked once, when the Scenario is built,
+ * and unknown keys are rejected so that a misspelt key cannot
+ * silently fall back to a default.
+ * A Scenario is immutable, so the same instance can be handed to
+ * a Simulator and run any number of times without being parsed again.
+ */
+public class Scenario {
+    /** The keys that may appear in a scenario file, apart from pool keys. */
+    private static final Set<String> KEYS = Set.of("seed", "queue.max",
+            "customers.count", "customers.arrival.rate", "customers.greedy.prob",
+            "customers.patience.rate",
+            "service.rate", "rest.rate", "rest.prob", "pools", "routing", "routing.d",
+            "splitting.levels", "splitting.effort", "output.trace",
+            "output.summary.interval", "output.summary.file", "live.speed");
+
+    /** The number of runs Splitting starts from each threshold, unless splitting.effort is given. */
+    public static final int DEFAULT_SPLIT_EFFORT = 1000;
+
+    /** The keys that may appear under each pool.NAME prefix. */
+    private static final Set<String> POOL_KEYS = Set.of("kind", "servers",
+            "service.rate", "rest.rate", "rest.prob", "queue.max", "queue");
+
+    /** The base seed for the RandomGenerator. */
+    private final int seed;
+
+    /** The default maximum length of a queue. */
+    private final int Qmax;
+
+    /** The number of customers (arrival events) to simulate. */
+    private final int nCustomers;
+
+    /** The arrival rate of customers. */
+    private final double arrivalRate;
+
+    /** The default service rate of servers. */
+    private final double serviceRate;
+
+    /** The default resting rate of servers. */
+    private final double restingRate;
+
+    /** The default probability that a human server rests after serving a customer. */
+    private final double probRest;
+
+    /** The probability that a customer is greedy. */
+    private final double probGreedy;
+
+    /** The rate at which waiting customers run out of patience, or 0 if they never do. */
+    private final double patienceRate;
+
+    /** The pools of servers, in the order their servers are numbered. */
+    private final List<PoolSpec> pools;
+
+    /** The name of the RoutingPolicy that places arriving customers in queues. */
+    private final String routing;
+
+    /** The number of queues sampled by the power-of-d RoutingPolicy. */
+    private final int routingD;
+
+    /**
+     * The thresholds on the number of places taken in the system at which
+     * Splitting copies the state of a run, in increasing order,
+     * or an empty list to let Splitting choose them.
+     */
+    private final List<Integer> splitLevels;
+
+    /** The number of runs Splitting starts from each threshold. */
+    private final int splitEffort;
+
+    /** Whether every Event should be printed, or only the final statistics. */
+    private final boolean trace;
+
+    /** The length in simulated time of each summary row, or 0 for no summary. */
+    private final double summaryInterval;
+
+    /** The file summary rows are written to, or null for the output of the run. */
+    private final String summaryFile;
+
+    /** The units of simulated time that pass per second of a live run. */
+    private final double liveSpeed;
+
+    /**
+     * Private constructor that validates its arguments and returns a new Scenario.
+     * @throws IllegalArgumentException if any of the values is out of range.
+     */
+    private Scenario(int seed, int Qmax, int nCustomers,
+            double arrivalRate, double serviceRate, double restingRate,
+            double probRest, double probGreedy, double patienceRate, List<PoolSpec> pools,
+            String routing, int routingD, List<Integer> splitLevels, int splitEffort,
+            boolean trace, double summaryInterval, String summaryFile, double liveSpeed) {
+        require(Qmax >= 0, "queue.max must not be negative");
+        require(nCustomers >= 0, "customers.count must not be negative");
+        require(arrivalRate > 0, "customers.arrival.rate must be positive");
+        require(serviceRate > 0, "service.rate must be positive");
+        require(restingRate >= 0, "rest.rate must not be negative");
+        require(probRest >= 0 && probRest <= 1, "rest.prob must be between 0 and 1");
+        require(probRest == 0 || restingRate > 0,
+                "rest.rate must be positive when rest.prob is not 0");
+        require(probGreedy >= 0 && probGreedy <= 1,
+                "customers.greedy.prob must be between 0 and 1");
+        require(patienceRate >= 0, "customers.patience.rate must not be negative");
+        require(RoutingPolicy.NAMES.contains(routing), "routing must be one of "
+                + RoutingPolicy.NAMES + ", not " + routing);
+        require(routingD >= 1, "routing.d must be at least 1");
+        for (int i = 0; i < splitLevels.size(); i++) {
+            require(splitLevels.get(i) > (i == 0 ? 0 : splitLevels.get(i - 1)),
+                    "splitting.levels must be positive and increasing");
+        }
+        require(splitEffort >= 1, "splitting.effort must be at least 1");
+        require(summaryInterval >= 0 && summaryInterval < Double.POSITIVE_INFINITY,
+                "output.summary.interval must not be negative");
+        require(liveSpeed > 0, "live.speed must be positive");
+        Set<String> names = new HashSet<>();
+        for (PoolSpec pool : pools) {
+            require(names.add(pool.get_name()), "pool " + pool.get_name()
+                    + " is declared more than once");
+        }
+
+        this.seed = seed;
+        this.Qmax = Qmax;
+        this.nCustomers = nCustomers;
+        this.arrivalRate = arrivalRate;
+        this.serviceRate = serviceRate;
+        this.restingRate = restingRate;
+        this.probRest = probRest;
+        this.probGreedy = probGreedy;
+        this.patienceRate = patienceRate;
+        this.pools = Collections.unmodifiableList(new ArrayList<>(pools));
+        this.routing = routing;
+        this.routingD = routingD;
+        this.splitLevels = Collections.unmodifiableList(new ArrayList<>(splitLevels));
+        this.splitEffort = splitEffort;
+        this.trace = trace;
+        this.summaryInterval = summaryInterval;
+        this.summaryFile = summaryFile;
+        this.liveSpeed = liveSpeed;
+    }
+
+    /**
+     * Static factory method that returns a Scenario from the
+     * ten positional parameters read by Main, in the same order.
+     * The human servers form a pool named "human" and the
+     * self-checkout counters form a pool named "self-check".
+     * The values are checked under the names of the positional parameters,
+     * since the keys of the pools they are copied into were never written.
+     * @throws IllegalArgumentException if any of the values is out of range.
+     */
+    public static Scenario of(int seed, int nServers, int nSelfCheckouts,
+            int Qmax, int nCustomers, double arrivalRate, double serviceRate,
+            double restingRate, double probRest, double probGreedy) {
+        require(nServers >= 0, "number of servers must not be negative");
+        require(nSelfCheckouts >= 0, "number of self-checkout counters must not be negative");
+        require(Qmax >= 0, "maximum queue length must not be negative");
+        require(nCustomers >= 0, "number of customers must not be negative");
+        require(arrivalRate > 0, "arrival rate must be positive");
+        require(serviceRate > 0, "service rate must be positive");
+        require(restingRate >= 0, "resting rate must not be negative");
+        require(probRest >= 0 && probRest <= 1, "probability of resting must be between 0 and 1");
+        require(probRest == 0 || restingRate > 0,
+                "resting rate must be positive when the probability of resting is not 0");
+        require(probGreedy >= 0 && probGreedy <= 1,
+                "probability of a greedy customer must be between 0 and 1");
+        List<PoolSpec> pools = List.of(
+                PoolSpec.human("human", nServers, serviceRate,
+                    probRest, restingRate, Qmax),
+                PoolSpec.selfCheckout("self-check", nSelfCheckouts, serviceRate, Qmax));
+        return new Scenario(seed, Qmax, nCustomers, arrivalRate, serviceRate,
+                restingRate, probRest, probGreedy, 0, pools, "first-open", 2,
+                List.of(), DEFAULT_SPLIT_EFFORT, true, 0, null, 1);
+    }
+
+    /**
+     * Loads and validates a Scenario from a scenario file.
+     * @param path The path of the scenario file.
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if the file is not a valid scenario.
+     */
+    public static Scenario load(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path)) {
+            return Scenario.parse(reader);
+        }
+    }
+
+    /**
+     * Parses and validates a Scenario in the scenario file format.
+     * @param reader The source of the scenario.
+     * @throws IOException if the reader fails.
+     * @throws IllegalArgumentException if the source is not a valid scenario.
+     */
+    public static Scenario parse(Reader reader) throws IOException {
+        Properties props = new Properties();
+        props.load(reader);
+
+        int Qmax = intValue(props, "queue.max");
+        double serviceRate = doubleValue(props, "service.rate");
+        double restingRate = doubleValue(props, "rest.rate");
+        double probRest = doubleValue(props, "rest.prob");
+
+        List<PoolSpec> pools = new ArrayList<>();
+        Set<String> poolNames = new HashSet<>();
+        for (String name : required(props, "pools").split(",")) {
+            name = name.trim();
+            require(!name.isEmpty(), "pools must not contain an empty name");
+            String prefix = "pool." + name + ".";
+            String kind = required(props, prefix + "kind");
+            int nServers = intValue(props, prefix + "servers");
+            double poolServiceRate = doubleValue(props, prefix + "service.rate", serviceRate);
+            double poolRestingRate = doubleValue(props, prefix + "rest.rate", restingRate);
+            int poolQmax = props.containsKey(prefix + "queue.max")
+                ? intValue(props, prefix + "queue.max")
+                : Qmax;
+            PoolSpec pool;
+            if (kind.equals("human")) {
+                pool = PoolSpec.human(name, nServers, poolServiceRate,
+                        doubleValue(props, prefix + "rest.prob", probRest),
+                        poolRestingRate, poolQmax);
+            } else if (kind.equals("self-check")) {
+                pool = PoolSpec.selfCheckout(name, nServers, poolServiceRate, poolQmax)
+                    .withRest(doubleValue(props, prefix + "rest.prob", 0), poolRestingRate);
+            } else {
+                throw new IllegalArgumentException(prefix + "kind must be "
+                        + "human or self-check, not " + kind);
+            }
+            String queue = props.getProperty(prefix + "queue");
+            if (queue != null) {
+                queue = queue.trim();
+                require(queue.equals("shared") || queue.equals("dedicated"),
+                        prefix + "queue must be shared or dedicated, not " + queue);
+                pool = pool.withSharedQueue(queue.equals("shared"));
+            }
+            pools.add(pool);
+            poolNames.add(name);
+        }
+
+        for (String key : props.stringPropertyNames()) {
+            if (key.startsWith("pool.")) {
+                boolean known = false;
+                for (String name : poolNames) {
+                    String prefix = "pool." + name + ".";
+                    known |= key.startsWith(prefix)
+                        && POOL_KEYS.contains(key.substring(prefix.length()));
+                }
+                require(known, "unknown scenario key " + key);
+            } else {
+                require(KEYS.contains(key), "unknown scenario key " + key);
+            }
+        }
+
+        return new Scenario(intValue(props, "seed"),
+                Qmax,
+                intValue(props, "customers.count"),
+                doubleValue(props, "customers.arrival.rate"),
+                serviceRate,
+                restingRate,
+                probRest,
+                doubleValue(props, "customers.greedy.prob"),
+                doubleValue(props, "customers.patience.rate", 0),
+                pools,
+                props.getProperty("routing", "first-open").trim(),
+                props.containsKey("routing.d") ? intValue(props, "routing.d") : 2,
+                intList(props, "splitting.levels"),
+                props.containsKey("splitting.effort")
+                    ? intValue(props, "splitting.effort")
+                    : DEFAULT_SPLIT_EFFORT,
+                booleanValue(props, "output.trace", true),
+                doubleValue(props, "output.summary.interval", 0),
+                props.containsKey("output.summary.file")
+                    ? required(props, "output.summary.file")
+                    : null,
+                doubleValue(props, "live.speed", 1));
+    }
+
+    /**
+     * Returns a copy of this Scenario that uses a different base seed.
+     * Useful for running the same configuration over many seeds.
+     * @param seed The base seed of the new Scenario.
+     */
+    public Scenario withSeed(int seed) {
+        return new Scenario(seed, this.Qmax, this.nCustomers, this.arrivalRate,
+                this.serviceRate, this.restingRate, this.probRest,
+                this.probGreedy, this.patienceRate, this.pools, this.routing, this.routingD,
+                this.splitLevels, this.splitEffort, this.trace,
+                this.summaryInterval, this.summaryFile, this.liveSpeed);
+    }
+
+    /**
+     * Returns a copy of this Scenario that uses a different RoutingPolicy.
+     * @param routing The name of the RoutingPolicy.
+     * @throws IllegalArgumentException if there is no policy with that name.
+     */
+    public Scenario withRouting(String routing) {
+        return new Scenario(this.seed, this.Qmax, this.nCustomers, this.arrivalRate,
+                this.serviceRate, this.restingRate, this.probRest,
+                this.probGreedy, this.patienceRate, this.pools, routing, this.routingD,
+                this.splitLevels, this.splitEffort, this.trace,
+                this.summaryInterval, this.summaryFile, this.liveSpeed);
+    }
+
+    /**
+     * Returns a copy of this Scenario that does or does not print every Event.
+     * @param trace Whether every Event should be printed.
+     */
+    public Scenario withTrace(boolean trace) {
+        return new Scenario(this.seed, this.Qmax, this.nCustomers, this.arrivalRate,
+                this.serviceRate, this.restingRate, this.probRest,
+                this.probGreedy, this.patienceRate, this.pools, this.routing, this.routingD,
+                this.splitLevels, this.splitEffort, trace,
+                this.summaryInterval, this.summaryFile, this.liveSpeed);
+    }
+
+    /** Throws an IllegalArgumentException with the given message unless ok holds. */
+    private static void require(boolean ok, String message) {
+        if (!ok) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    /** Returns the trimmed value of a key that must be present. */
+    private static String required(Properties props, String key) {
+        String value = props.getProperty(key);
+        require(value != null, "missing scenario key " + key);
+        return value.trim();
+    }
+
+    /** Returns the value of a key that must be present as an int. */
+    private static int intValue(Properties props, String key) {
+        String value = required(props, key);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " must be an integer, not " + value);
+        }
+    }
+
+    /** Returns the value of an optional key as a list of ints, or an empty list if it is absent. */
+    private static List<Integer> intList(Properties props, String key) {
+        List<Integer> values = new ArrayList<>();
+        String value = props.getProperty(key, "").trim();
+        if (value.isEmpty()) {
+            return values;
+        }
+        for (String item : value.split(",")) {
+            try {
+                values.add(Integer.parseInt(item.trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(key + " must be a list of integers, not " + value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns the value of an optional key as a boolean, or the default if it is absent.
+     * Only true and false are accepted, so that a misspelt value cannot silently mean false.
+     */
+    private static boolean booleanValue(Properties props, String key, boolean otherwise) {
+        if (!props.containsKey(key)) {
+            return otherwise;
+        }
+        String value = required(props, key);
+        require(value.equals("true") || value.equals("false"),
+                key + " must be true or false, not " + value);
+        return value.equals("true");
+    }
+
+    /** Returns the value of an optional key as a double, or the default if it is absent. */
+    private static double doubleValue(Properties props, String key, double otherwise) {
+        return props.containsKey(key) ? doubleValue(props, key) : otherwise;
+    }
+
+    /** Returns the value of a key that must be present as a double. */
+    private static double doubleValue(Properties props, String key) {
+        String value = required(props, key);
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " must be a number, not " + value);
+        }
+    }
+
+    /** Returns the base seed for the RandomGenerator. */
+    public int get_seed() {
+        return this.seed;
+    }
+
+    /** Returns the default maximum length of a queue. */
+    public int get_Qmax() {
+        return this.Qmax;
+    }
+
+    /** Returns the number of customers to simulate. */
+    public int get_nCustomers() {
+        return this.nCustomers;
+    }
+
+    /** Returns the arrival rate of customers. */
+    public double get_arrivalRate() {
+        return this.arrivalRate;
+    }
+
+    /** Returns the default service rate of servers. */
+    public double get_serviceRate() {
+        return this.serviceRate;
+    }
+
+    /** Returns the default resting rate of servers. */
+    public double get_restingRate() {
+        return this.restingRate;
+    }
+
+    /** Returns the default probability that a human server rests. */
+    public double get_probRest() {
+        return this.probRest;
+    }
+
+    /** Returns the probability that a customer is greedy. */
+    public double get_probGreedy() {
+        return this.probGreedy;
+    }
+
+    /** Returns the pools of servers, in the order their servers are numbered. */
+    public List<PoolSpec> get_pools() {
+        return this.pools;
+    }
+
+    /** Returns the rate at which waiting customers run out of patience, or 0 if they never do. */
+    public double get_patienceRate() {
+        return this.patienceRate;
+    }
+
+    /** Returns the name of the RoutingPolicy that places arriving customers in queues. */
+    public String get_routing() {
+        return this.routing;
+    }
+
+    /** Returns the number of queues sampled by the power-of-d RoutingPolicy. */
+    public int get_routingD() {
+        return this.routingD;
+    }
+
+    /** Returns the length in simulated time of each summary row, or 0 for no summary. */
+    public double get_summaryInterval() {
+        return this.summaryInterval;
+    }
+
+    /** Returns the file summary rows are written to, or null for the output of the run. */
+    public String get_summaryFile() {
+        return this.summaryFile;
+    }
+
+    /** Returns the units of simulated time that pass per second of a live run. */
+    public double get_liveSpeed() {
+        return this.liveSpeed;
+    }
+
+    /**
+     * Returns the thresholds at which Splitting copies the state of a run,
+     * or an empty list if Splitting should choose them.
+     */
+    public List<Integer> get_splitLevels() {
+        return this.splitLevels;
+    }
+
+    /** Returns the number of runs Splitting starts from each threshold. */
+    public int get_splitEffort() {
+        return this.splitEffort;
+    }
+
+    /** Returns whether every Event should be printed. */
+    public boolean get_trace() {
+        return this.trace;
+    }
+}
@@ -1,14 +1,17 @@
 package cs2030.simulator;
-import java.util.PriorityQueue;
 import java.lang.Comparable;
 
-/** 
+/**
  * Models a server that can either be a human or a self-collection counter.
- * Human servers randomly decide to take rests and for random amounts of time.
+ * Every server belongs to a pool, which sets its service rate,
+ * how often and for how long it rests, and whether it keeps a dedicated
+ * queue or shares one queue with the rest of its pool.
+ * By default, human servers randomly decide to take rests and for random
+ * amounts of time, while self-collection counters never rest.
  * This behaviour is determined by a random generation system whose statistics
- * are fed in via a call to a static method in the Event class.
- * Self-collection counters by default never rest.
- * All servers maintain an ordered queue of waiting customers.
+ * are fed in via a call to a static method in the Event class, and which
+ * is kept per thread, so that runs on different threads do not share it.
+ * All servers serve an ordered queue of waiting customers.
  */
 public class Server implements Comparable<Server> {
     public int id;
@@ -16,242 +19,217 @@ public class Server implements Comparable<Server> {
     /** Tracks the next time the Server is free to serve a Customer. */
     private double free_after;
 
-    /** 
-     * Stores the random generator. 
-     * This will enable the random generation of service times
-     * when servers are serving customers.
-     */
-    private static RandomGenerator rg;
-
-    /** Stores a queue of customers for human servers */
-    private PriorityQueue<Customer> customerQ;
-
-    /** Tracks the length of a human server's queue. */
-    private int Qlen;
-
-    /** Stores any server's probability of resting. */
-    private static double probRest;
+    /** The random state of the run on the current thread. */
+    private static final ThreadLocal<Draws> draws = ThreadLocal.withInitial(Draws::new);
 
-    /** Tracks if the server is human or a self-checkout counter. */
-    private boolean isHuman;
+    /** The pool this server belongs to. */
+    private final PoolSpec pool;
 
-    /** Stores a shared queue of customers for self-checkout counters. */
-    private static PriorityQueue<Customer> sharedSelfCheckoutQ;
+    /** The queue this server serves, which may be shared with the rest of its pool. */
+    private final ServerQueue queue;
 
-    /** Tracks the length of the shared queue for self-checkout counters. */
-    private static int sharedQlen;
+    /** The position of this server among the servers of its queue. */
+    private final int slot;
 
-    /** Tracks the total number of human servers. */
-    private static int nHumanServers;
-    
-    /** 
-     * Private constructor that returns a new Server object.
+    /**
+     * Package-private constructor that returns a new Server object.
+     * Servers are created by the ServerQueue they serve.
      * @param id The Server's identification number.
-     * @param isHuman Whether the Server to be instantiated 
-     * is human or a self-checkout counter. 
+     * @param pool The pool the Server belongs to.
+     * @param queue The queue the Server serves.
+     * @param slot The position of the Server among the servers of its queue.
      */
-    private Server(int id, boolean isHuman) {
+    Server(int id, PoolSpec pool, ServerQueue queue, int slot) {
         this.id = id;
         this.free_after = 0;
-        this.Qlen = 0;
-        this.customerQ = new PriorityQueue<>();
-        this.isHuman = isHuman;
-        if (!isHuman) {
-            Server.sharedSelfCheckoutQ = new PriorityQueue<>();
-            Server.sharedQlen = 0;
-        }
-    }
-    
-    /** 
-     * Static factory method that returns a new human Server object.
-     * It also updates number of human servers.
-     * @param id The Server's identification number. 
-     */
-    public static Server genHumanServer(int id) {
-        Server.nHumanServers++;
-        return new Server(id, true);
+        this.pool = pool;
+        this.queue = queue;
+        this.slot = slot;
     }
-    
-    /** 
-     * Static factory method that returns a new Server object 
-     * that is a self-checkout counter.
-     * @param id The Server's identification number.
-     */
-    public static Server genSelfCheckoutCounter(int id) {
-        return new Server(id, false);
+
+    /** The random state that the Servers of one run share. */
+    private static class Draws {
+        /**
+         * Stores the random generator.
+         * This will enable the random generation of service times
+         * when servers are serving customers.
+         */
+        private RandomGenerator rg;
+
+        /**
+         * The service rate the random generator was created with.
+         * Service times are rescaled from this rate to the rate of each pool.
+         */
+        private double baseServiceRate;
+
+        /**
+         * The resting rate the random generator was created with.
+         * Rest periods are rescaled from this rate to the rate of each pool.
+         */
+        private double baseRestingRate;
     }
-    
-    /** 
-     * Initializes Server's static RandomGenerator.
+
+    /**
+     * Initializes Server's static RandomGenerator for the current thread,
+     * which the servers of every pool share; see PoolSpec.
      * @param rg The RandomGenerator object to be used.
-     * @param probRest The probability that any given Server will rest.
+     * @param serviceRate The service rate rg was created with.
+     * @param restingRate The resting rate rg was created with.
      */
-    public static void setRg(RandomGenerator rg, double probRest) {
-        Server.rg = rg;
-        Server.probRest = probRest;
+    public static void setRg(RandomGenerator rg, double serviceRate, double restingRate) {
+        Draws draws = new Draws();
+        draws.rg = rg;
+        draws.baseServiceRate = serviceRate;
+        draws.baseRestingRate = restingRate;
+        Server.draws.set(draws);
     }
-    
-    /** 
+
+    /**
      * Returns the time it takes for the Server to
-     * serve a customer. 
+     * serve a customer, at the service rate of its pool.
      */
-    public static double genServiceTime() {
-        return rg.genServiceTime();
+    public double genServiceTime() {
+        Draws draws = Server.draws.get();
+        return draws.rg.genServiceTime()
+            * (draws.baseServiceRate / this.pool.get_serviceRate());
     }
-    
-    /** 
+
+    /**
      * Returns whether the server needs to rest.
-     * Return value depends on the output of 
-     * Server's RandomGenerator rg and probRest, the 
-     * probability that any given server will rest.
-     * If the server is a self-checkout counter,
-     * false is always returned.
+     * Return value depends on the output of
+     * Server's RandomGenerator rg and the probability
+     * that a server of this pool will rest.
+     * If the pool never rests, false is always returned.
      */
     public boolean needsToRest() {
-        if (this.isHuman) {
-            return Server.rg.genRandomRest() < Server.probRest;
+        double probRest = this.pool.get_probRest();
+        if (probRest > 0) {
+            return Server.draws.get().rg.genRandomRest() < probRest;
         } else {
             return false;
         }
     }
-    
-    /** 
+
+    /**
      * Updates the states of the server when resting.
      * @param currTime The time the server starts to rest
      * @return The time when the server finishes resting as a double.
      */
     public double restsFrom(double currTime) {
-        double restPeriod = Server.rg.genRestPeriod();
-        this.free_after = currTime + restPeriod;
+        Draws draws = Server.draws.get();
+        double restPeriod = draws.rg.genRestPeriod()
+            * (draws.baseRestingRate / this.pool.get_restingRate());
+        this.setFreeAfter(currTime + restPeriod);
         return this.free_after;
     }
-    
+
+    /**
+     * Resumes serving a customer whose service was already under way
+     * when the state of the simulation was copied.
+     * Service times are exponential, so the time left is drawn afresh.
+     * @param currTime The time the copy resumes from.
+     * @return The time when service is done.
+     */
+    double resumeService(double currTime) {
+        this.setFreeAfter(currTime + this.genServiceTime());
+        return this.free_after;
+    }
+
+    /** Updates the next time the server is free, and reports it to its queue. */
+    private void setFreeAfter(double time) {
+        this.free_after = time;
+        this.queue.setFreeAfter(this.slot, time);
+    }
+
     public int get_id() {
         return this.id;
     }
-    
-    /** 
+
+    /** Returns the next time the Server is free to serve a Customer. */
+    public double get_freeAfter() {
+        return this.free_after;
+    }
+
+    /** Returns the pool this server belongs to. */
+    public PoolSpec get_pool() {
+        return this.pool;
+    }
+
+    /** Returns the queue this server serves. */
+    public ServerQueue get_queue() {
+        return this.queue;
+    }
+
+    /**
      * Returns the length of the server's queue.
-     * If this server is human, 
-     * the instance's Qlen variable is returned.
-     * If this server is a self-checkout counter,
-     * the static sharedQlen variable is returned. 
+     * If the queue is shared, this is the length of the whole shared queue.
      */
     public int get_Qlen() {
-        if (this.isHuman) {
-            return this.Qlen;
-        } else {
-            return Server.sharedQlen;
-        }
-    }
-    
-    /** 
-     * Decrements the length of the server's queue.
-     * If this server is human, 
-     * the instance's Qlen variable is decremented.
-     * If this server is a self-checkout counter,
-     * the static sharedQlen variable is decremented. 
-     */
-    public void decQlen() {
-        if (this.isHuman) {
-            this.Qlen = Math.max(this.Qlen-1, 0);
-        } else {
-            Server.sharedQlen = Math.max(Server.sharedQlen-1, 0);
-        }
+        return this.queue.get_Qlen();
     }
 
-    /** 
+    /**
      * Updates the states of the server when serving a customer.
-     * The length of the queue is decremented, 
-     * and the customer is removed from the waiting queue.
-     * Prints an error message if the customer being served 
+     * The customer is removed from the waiting queue,
+     * and the server's next available time is updated.
+     * Prints an error message if the customer being served
      * is not the first in the waiting queue.
      * @return The time when service is done.
      * @param customer The customer being served.
      * @param currTime The time that service begins.
      */
-    public double serve(Customer customer, double currTime) { // Customer c
-        PriorityQueue<Customer> Q;
-        if (this.isHuman) {
-            Q = this.customerQ;
-        } else {
-            Q = Server.sharedSelfCheckoutQ;
-        }
-        Q.poll();
-        this.decQlen();
-        if (Q.remove(customer)) {
+    public double serve(Customer customer, double currTime) {
+        this.queue.poll();
+        if (this.queue.remove(customer)) {
             System.err.println("Error: Server is serving a Customer out of turn");
         }
-        this.free_after = currTime + Server.genServiceTime();
+        this.setFreeAfter(currTime + this.genServiceTime());
         return this.free_after;
     }
-    
-    /** 
-     * Checks if this server is available to serve the customer immediately. 
+
+    /**
+     * Checks if this server is available to serve the customer immediately.
      * For this to be true, the server has to have no other customers waiting,
      * and the customer has to have arrived when the server is not occupied
      * @param customer The customer to check.
      */
     public boolean canServe(Customer customer) {
         boolean notBusy = customer.get_arrivaltime() >= this.free_after;
-        if (this.isHuman) {
-            return this.Qlen == 0 && notBusy;
-        } else {
-            return Server.sharedQlen == 0 && notBusy;
-        }
+        return this.queue.get_Qlen() == 0 && notBusy;
     }
-    
-    /** 
+
+    /**
      * Adds a customer to this server's queue.
-     * If the server is human, the instance's attributes are updated.
-     * If the server is a self-checkout counter, the static attributes are updated.
+     * If the queue is shared, the customer may be served by any server of the pool.
      * @param customer The customer to add to the queue.
      */
     public void addToQ(Customer customer) {
-        if (this.isHuman) {
-            this.Qlen++;
-            this.customerQ.add(customer);
-        } else {
-            Server.sharedQlen++;
-            Server.sharedSelfCheckoutQ.add(customer);
-        }
+        this.queue.add(customer);
     }
-    
-    /** 
-     * Returns a PriorityQueue containing the customers
-     * waiting in line for service from this server. 
+
+    /**
+     * Returns the next customer waiting in line for service
+     * from this server, or null if there is none.
      */
-    public PriorityQueue<Customer> get_customerQ() {
-        if (this.isHuman) {
-            return this.customerQ;
-        } else {
-            return Server.sharedSelfCheckoutQ;
-        }
+    public Customer nextCustomer() {
+        return this.queue.peek();
     }
-    
+
     /** Checks if this server is human or is a self-checkout counter. */
     public boolean isHuman() {
-        return this.isHuman;
-    }
-    
-    /** 
-     * Returns the default id to represent that
-     * a customer is waiting at a self-checkout counter.
-     */
-    public static int selfCheckoutId() {
-        return Server.nHumanServers + 1;
+        return this.pool.isHuman();
     }
 
-    /** 
-     * Compares this server instance with the specified server instance, 
+    /**
+     * Compares this server instance with the specified server instance,
      * from the perspective of a greedy customer choosing whose queue to wait in.
-     * Returns a negative integer, zero or a positive integer, 
+     * Returns a negative integer, zero or a positive integer,
      * as this Event is less than, equal to or greater than the specified object.
-     * Servers with shorter queues are favoured over those with longer queues. 
-     * If there are ties, servers with smaller id 
+     * Servers with shorter queues are favoured over those with longer queues.
+     * If there are ties, servers with smaller id
      * numbers are picked over those with larger id numbers.
      * Facilitates easy comparison when initializing queues of Servers.
-     * This allows for convenient sorting and selection 
+     * This allows for convenient sorting and selection
      * of servers in the case of a greedy customer.
      * @param other The other Server to compare with.
      */
@@ -267,7 +245,7 @@ public class Server implements Comparable<Server> {
     @Override
     public String toString() {
         String output = "";
-        if (this.isHuman) {
+        if (this.isHuman()) {
             output += "server ";
         } else {
             output += "self-check ";
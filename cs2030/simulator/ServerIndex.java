@@ -0,0 +1,146 @@
+package cs2030.simulator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Indexes every ServerQueue in the system, in order of server id,
+ * so that arriving customers can be routed in O(log S) time.
+ * Three MinTrees are kept up to date as queues change:
+ * one holds, for each empty queue, the earliest time one of its servers is free,
+ * one holds the length of each queue that is not full,
+ * and one holds the expected start of service in each queue that is not full.
+ * Queues report their own changes, so the index never has to scan the servers.
+ */
+public class ServerIndex {
+    /** The queues, ordered by the id of their first server. */
+    private final List<ServerQueue> queues;
+
+    /** Every server, in order of id. */
+    private final List<Server> servers;
+
+    /** For each queue, the earliest time one of its servers is free, if the queue is empty. */
+    private final MinTree idle;
+
+    /** For each queue that is not full, the number of customers waiting in it. */
+    private final MinTree open;
+
+    /** For each queue that is not full, the time a customer joining it can expect to be served. */
+    private final MinTree work;
+
+    /**
+     * Constructor returns a ServerIndex over the given queues.
+     * @param queues The queues, ordered by the id of their first server.
+     */
+    public ServerIndex(List<ServerQueue> queues) {
+        this.queues = Collections.unmodifiableList(new ArrayList<>(queues));
+        this.idle = new MinTree(queues.size(), MinTree.NONE);
+        this.open = new MinTree(queues.size(), MinTree.NONE);
+        this.work = new MinTree(queues.size(), MinTree.NONE);
+        List<Server> servers = new ArrayList<>();
+        for (int i = 0; i < queues.size(); i++) {
+            ServerQueue queue = queues.get(i);
+            servers.addAll(queue.get_servers());
+            queue.attach(this, i);
+            this.update(i);
+        }
+        this.servers = Collections.unmodifiableList(servers);
+    }
+
+    /**
+     * Static factory method that creates the queues and servers
+     * of the given pools, and returns an index over them.
+     * Servers are numbered from 1, in the order of the pools.
+     * @param pools The pools of servers to create.
+     */
+    public static ServerIndex of(List<PoolSpec> pools) {
+        List<ServerQueue> queues = new ArrayList<>();
+        int nextId = 1;
+        for (PoolSpec pool : pools) {
+            int n = pool.get_nServers();
+            if (n == 0) {
+                continue;
+            }
+            if (pool.hasSharedQueue()) {
+                queues.add(new ServerQueue(pool, nextId, n));
+            } else {
+                for (int i = 0; i < n; i++) {
+                    queues.add(new ServerQueue(pool, nextId + i, 1));
+                }
+            }
+            nextId += n;
+        }
+        return new ServerIndex(queues);
+    }
+
+    /** Recomputes the entries of the queue at the given position. */
+    void update(int position) {
+        ServerQueue queue = this.queues.get(position);
+        int Qlen = queue.get_Qlen();
+        this.idle.set(position, Qlen == 0 ? queue.get_minFreeAfter() : MinTree.NONE);
+        this.open.set(position, queue.isFull() ? MinTree.NONE : Qlen);
+        this.work.set(position, queue.isFull() ? MinTree.NONE : queue.get_expectedStart());
+    }
+
+    /** Returns the queues, ordered by the id of their first server. */
+    public List<ServerQueue> get_queues() {
+        return this.queues;
+    }
+
+    /** Returns every server, in order of id. */
+    public List<Server> get_servers() {
+        return this.servers;
+    }
+
+    /**
+     * Returns the number of customers the system can hold at once:
+     * one being served by each server, and a full queue in front of them.
+     */
+    public long get_capacity() {
+        long capacity = this.servers.size();
+        for (ServerQueue queue : this.queues) {
+            capacity += queue.get_Qmax();
+        }
+        return capacity;
+    }
+
+    /**
+     * Returns the server with the smallest id that can serve
+     * a customer immediately at the given time, or null if there is none.
+     * @param time The time the customer arrives.
+     */
+    public Server idleServer(double time) {
+        int position = this.idle.firstAtMost(time, 0);
+        return position < 0 ? null : this.queues.get(position).idleServer(time);
+    }
+
+    /**
+     * Returns the first queue, at or after the given position, that is not full,
+     * or null if there is none.
+     * @param from The position to start looking from.
+     */
+    public ServerQueue firstOpenQueue(int from) {
+        int position = this.open.firstAtMost(Double.MAX_VALUE, from);
+        return position < 0 ? null : this.queues.get(position);
+    }
+
+    /**
+     * Returns the shortest queue that is not full, or null if there is none.
+     * Ties are broken in favour of the queue whose first server has the smallest id.
+     */
+    public ServerQueue shortestQueue() {
+        int position = this.open.argmin();
+        return position < 0 ? null : this.queues.get(position);
+    }
+
+    /**
+     * Returns the queue that is not full in which a customer joining now
+     * can expect to start service soonest, or null if every queue is full.
+     * This is only meaningful when no server is idle, since the estimate
+     * does not account for servers that are already free.
+     */
+    public ServerQueue leastWorkQueue() {
+        int position = this.work.argmin();
+        return position < 0 ? null : this.queues.get(position);
+    }
+}
@@ -0,0 +1,189 @@
+package cs2030.simulator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Models a queue of waiting customers, served by one or more Servers.
+ * A pool with dedicated queues has one ServerQueue per server,
+ * while a pool with a shared queue has a single ServerQueue for all its servers.
+ * Customers join a queue in order of arrival, since WAITS Events are
+ * processed in the same order as the ARRIVES Events before them,
+ * so the queue is kept in insertion order. This lets a customer who
+ * reneges be removed from anywhere in the queue in O(1) time.
+ * The ServerQueue tracks when each of its servers is next free,
+ * so that an idle server can be found in O(log k) time,
+ * and reports every change to the ServerIndex it belongs to.
+ */
+public class ServerQueue {
+    /** The pool this queue belongs to. */
+    private final PoolSpec pool;
+
+    /** The servers that serve this queue, in order of id. */
+    private final List<Server> servers;
+
+    /** Stores the customers waiting in this queue, in order of arrival. */
+    private final LinkedHashSet<Customer> customerQ;
+
+    /** Tracks the next time each server of this queue is free. */
+    private final MinTree freeAfter;
+
+    /** The ServerIndex this queue reports to, if any. */
+    private ServerIndex index;
+
+    /** The position of this queue in its ServerIndex. */
+    private int position;
+
+    /**
+     * Constructor returns a new, empty ServerQueue along with its servers.
+     * @param pool The pool the queue and its servers belong to.
+     * @param firstId The id of the first server; the rest are numbered consecutively.
+     * @param nServers The number of servers that serve this queue.
+     */
+    public ServerQueue(PoolSpec pool, int firstId, int nServers) {
+        this.pool = pool;
+        this.customerQ = new LinkedHashSet<>();
+        this.freeAfter = new MinTree(nServers, 0);
+        List<Server> servers = new ArrayList<>(nServers);
+        for (int i = 0; i < nServers; i++) {
+            servers.add(new Server(firstId + i, pool, this, i));
+        }
+        this.servers = Collections.unmodifiableList(servers);
+    }
+
+    /** Attaches this queue to a ServerIndex, at the given position. */
+    void attach(ServerIndex index, int position) {
+        this.index = index;
+        this.position = position;
+    }
+
+    /** Returns the position of this queue in its ServerIndex. */
+    int get_position() {
+        return this.position;
+    }
+
+    /** Returns the pool this queue belongs to. */
+    public PoolSpec get_pool() {
+        return this.pool;
+    }
+
+    /** Returns the servers that serve this queue, in order of id. */
+    public List<Server> get_servers() {
+        return this.servers;
+    }
+
+    /**
+     * Returns the server that customers joining this queue are said to wait for,
+     * which is the server with the smallest id.
+     */
+    public Server get_firstServer() {
+        return this.servers.get(0);
+    }
+
+    /** Returns the number of customers waiting in this queue. */
+    public int get_Qlen() {
+        return this.customerQ.size();
+    }
+
+    /** Returns the maximum length of this queue. */
+    public int get_Qmax() {
+        return this.pool.get_Qmax();
+    }
+
+    /** Checks if another customer may join this queue. */
+    public boolean isFull() {
+        return this.customerQ.size() >= this.pool.get_Qmax();
+    }
+
+    /** Returns a copy of the customers waiting in this queue, in order of arrival. */
+    List<Customer> get_customers() {
+        return new ArrayList<>(this.customerQ);
+    }
+
+    /** Returns the customer at the front of this queue, or null if it is empty. */
+    public Customer peek() {
+        return this.customerQ.isEmpty() ? null : this.customerQ.iterator().next();
+    }
+
+    /**
+     * Removes the customer at the front of this queue and returns it,
+     * or returns null if the queue is empty.
+     */
+    Customer poll() {
+        Iterator<Customer> it = this.customerQ.iterator();
+        if (!it.hasNext()) {
+            return null;
+        }
+        Customer customer = it.next();
+        it.remove();
+        this.changed();
+        return customer;
+    }
+
+    /**
+     * Removes a customer from anywhere in this queue.
+     * @param customer The customer to remove.
+     * @return Whether the customer was in the queue.
+     */
+    boolean remove(Customer customer) {
+        boolean removed = this.customerQ.remove(customer);
+        if (removed) {
+            this.changed();
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the expected time at which a customer joining this queue now
+     * would start service: the earliest time one of its servers is free,
+     * plus the mean time its servers take to clear the customers already waiting.
+     */
+    public double get_expectedStart() {
+        return this.freeAfter.min() + this.customerQ.size()
+            / (this.servers.size() * this.pool.get_serviceRate());
+    }
+
+    /** Returns the earliest time that any server of this queue is free. */
+    public double get_minFreeAfter() {
+        return this.freeAfter.min();
+    }
+
+    /**
+     * Returns the server with the smallest id that is free at the given time,
+     * or null if the queue is not empty or every server is busy.
+     * @param time The time at which the server must be free.
+     */
+    public Server idleServer(double time) {
+        if (!this.customerQ.isEmpty()) {
+            return null;
+        }
+        int slot = this.freeAfter.firstAtMost(time, 0);
+        return slot < 0 ? null : this.servers.get(slot);
+    }
+
+    /** Adds a customer to this queue. */
+    void add(Customer customer) {
+        this.customerQ.add(customer);
+        this.changed();
+    }
+
+    /** Records that the server in the given slot is next free at the given time. */
+    void setFreeAfter(int slot, double time) {
+        this.freeAfter.set(slot, time);
+        this.changed();
+    }
+
+    /** Reports a change in the length of the queue, or in when its servers are free. */
+    void changed() {
+        if (this.index != null) {
+            this.index.update(this.position);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.servers + " " + this.customerQ.size() + "/" + this.pool.get_Qmax();
+    }
+}
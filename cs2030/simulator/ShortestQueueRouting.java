@@ -0,0 +1,17 @@
+package cs2030.simulator;
+
+/**
+ * Join-the-shortest-queue: every customer behaves like a greedy one,
+ * and joins the shortest queue that is not full.
+ */
+class ShortestQueueRouting implements RoutingPolicy {
+    @Override
+    public ServerQueue chooseQueue(Customer customer, double time, ServerIndex servers) {
+        return servers.shortestQueue();
+    }
+
+    @Override
+    public String get_name() {
+        return "shortest-queue";
+    }
+}
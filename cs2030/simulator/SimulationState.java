@@ -0,0 +1,505 @@
+package cs2030.simulator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The mutable state of one run of a Scenario: its servers and queues,
+ * the calendar of pending Events, and the pending timeouts of waiting customers.
+ * step() processes one Event at a time, so the Simulator and other drivers
+ * can decide when to stop, and what to do with each Event.
+ * Arrivals are generated lazily: the next customer is only drawn when the
+ * previous one arrives, so the calendar holds at most one ARRIVES Event,
+ * and the memory used does not grow with the number of customers.
+ * This draws exactly the same random numbers as generating every customer
+ * up front, since arrivals have random streams of their own.
+ *
+ * <p>Every random time in the model is exponential, so the future of a run
+ * only depends on who is waiting where, who is being served, and which
+ * servers are resting, and not on how long any of that has been going on.
+ * A Snapshot records just that, and restore() resumes from it with
+ * new random streams, drawing every pending time afresh.
+ * The state of a RoutingPolicy is not part of a Snapshot:
+ * a restored run starts its policy over, which only matters to round-robin.</p>
+ *
+ * <p>Customers can also arrive from outside the Scenario, through arrive().
+ * Their ids follow those of every customer the Scenario may generate,
+ * and whether they are greedy is drawn from a stream of their own,
+ * so the generated customers are the same whether or not any arrive.</p>
+ */
+class SimulationState {
+    /**
+     * A copy of the state of a run, taken between Events, from which
+     * any number of independent continuations can be restored.
+     */
+    static final class Snapshot {
+        /** The time the copy was taken. */
+        private final double time;
+
+        /** The number of customers generated so far, including the one yet to arrive. */
+        private final int nArrivals;
+
+        /** The number of places taken, as counted by get_occupancy(). */
+        private final int occupancy;
+
+        /** The customers waiting in each queue, in order of arrival. */
+        private final List<List<Customer>> waiting;
+
+        /** The customer each server is serving, by server id, or null. */
+        private final Customer[] serving;
+
+        /** Whether each server is resting, by server id. */
+        private final boolean[] resting;
+
+        private Snapshot(double time, int nArrivals, int occupancy,
+                List<List<Customer>> waiting, Customer[] serving, boolean[] resting) {
+            this.time = time;
+            this.nArrivals = nArrivals;
+            this.occupancy = occupancy;
+            this.waiting = waiting;
+            this.serving = serving;
+            this.resting = resting;
+        }
+
+        /** Returns the time the copy was taken. */
+        double get_time() {
+            return this.time;
+        }
+
+        /** Returns the number of places taken when the copy was taken. */
+        int get_occupancy() {
+            return this.occupancy;
+        }
+    }
+
+    /** The configuration being simulated. */
+    private final Scenario scenario;
+
+    /** The queues and Servers of every pool. */
+    private final ServerIndex servers;
+
+    /** Places arriving customers in queues when no server is idle. */
+    private final RoutingPolicy routing;
+
+    /** Draws the patience of waiting customers. */
+    private final Random patience;
+
+    /** Draws whether customers arriving from outside the Scenario are greedy. */
+    private final Random external;
+
+    /** The calendar of pending Events. */
+    private final EventQueue eventQ = new EventQueue();
+
+    /**
+     * The pending RENEGES Event of each waiting customer,
+     * which is cancelled as soon as the customer is called to be served.
+     */
+    private final Map<Customer, Event> timeouts = new HashMap<>();
+
+    /** The pending DONE or SERVER_BACK Event of each server, by server id. */
+    private final Event[] serverEvents;
+
+    /** The number of customers generated so far, including the one yet to arrive. */
+    private int nArrivals = 0;
+
+    /** The number of customers that may be generated in this run. */
+    private final int maxArrivals;
+
+    /** The number of customers that arrived from outside the Scenario. */
+    private int nExternal = 0;
+
+    /** The number of places taken, as counted by get_occupancy(). */
+    private int occupancy = 0;
+
+    /** The number of customers waiting in a queue now. */
+    private int nWaiting = 0;
+
+    /** The number of servers resting now. */
+    private int nResting = 0;
+
+    /** The number of customers that had to wait in a queue. */
+    private int nWaited = 0;
+
+    /** The number of Events processed so far. */
+    private long nEvents = 0;
+
+    /** The time of the last Event processed. */
+    private double time = 0;
+
+    /**
+     * Private constructor that seeds the random generators
+     * and creates the servers of a run with no Events scheduled yet.
+     * @param sc The configuration to simulate.
+     * @param seed The base seed of every random stream of the run.
+     * @param maxArrivals The number of customers that may be generated.
+     * @param restored Whether the run is restored from a Snapshot.
+     */
+    private SimulationState(Scenario sc, int seed, int maxArrivals, boolean restored) {
+        /**
+         * Set the parameters for the Random Generator in the system.
+         * A resting rate of 0 is only allowed when the default pools never rest,
+         * so any positive base rate will do for pools that override it.
+         */
+        double restingRate = sc.get_restingRate() > 0 ? sc.get_restingRate() : 1;
+        if (restored) {
+            Event.setIndependentRg(seed, sc.get_arrivalRate(), sc.get_serviceRate(),
+                    restingRate, sc.get_probGreedy());
+        } else {
+            Event.setRg(seed, sc.get_arrivalRate(), sc.get_serviceRate(),
+                    restingRate, sc.get_probGreedy());
+        }
+
+        this.scenario = sc;
+        this.servers = ServerIndex.of(sc.get_pools());
+        this.serverEvents = new Event[this.servers.get_servers().size() + 1];
+        this.maxArrivals = maxArrivals;
+
+        /**
+         * Policies that make random choices get a seed just past
+         * the six consecutive seeds used by the RandomGenerator.
+         * Patience is drawn from the seed that the RandomGenerator
+         * sets aside for timeouts, but never draws from itself.
+         * Splitting uses seed + 7, so external arrivals take seed + 8.
+         */
+        this.routing = RoutingPolicy.of(sc.get_routing(), sc.get_routingD(), seed + 6);
+        this.patience = new Random(seed + 5);
+        this.external = new Random(seed + 8);
+        /** Like the streams of the RandomGenerator, see Event.setIndependentRg. */
+        for (int i = 0; restored && i < 6; i++) {
+            this.patience.nextDouble();
+        }
+    }
+
+    /**
+     * Static factory method that returns the initial state of a run,
+     * with the first customer arriving at time 0.
+     * @param sc The configuration to simulate.
+     */
+    static SimulationState start(Scenario sc) {
+        SimulationState state = new SimulationState(sc, sc.get_seed(), sc.get_nCustomers(), false);
+        if (state.maxArrivals > 0) {
+            state.nArrivals = 1;
+            state.scheduleArrival(Customer.genArrival(1));
+        }
+        return state;
+    }
+
+    /**
+     * Static factory method that resumes a run from a Snapshot,
+     * with new random streams, so that every restored copy goes its own way.
+     * @param sc The configuration the Snapshot was taken from.
+     * @param snapshot The state to resume from.
+     * @param seed The base seed of the new random streams.
+     * @param moreArrivals The number of further customers that may arrive.
+     */
+    static SimulationState restore(Scenario sc, Snapshot snapshot, int seed, int moreArrivals) {
+        SimulationState state = new SimulationState(sc, seed,
+                (int) Math.min((long) snapshot.nArrivals + moreArrivals, Integer.MAX_VALUE), true);
+        double time = snapshot.time;
+        state.time = time;
+
+        List<ServerQueue> queues = state.servers.get_queues();
+        for (int i = 0; i < queues.size(); i++) {
+            Server first = queues.get(i).get_firstServer();
+            for (Customer customer : snapshot.waiting.get(i)) {
+                first.addToQ(customer);
+                state.occupancy++;
+                state.nWaiting++;
+                state.scheduleTimeout(customer, first, time);
+            }
+        }
+        for (Server server : state.servers.get_servers()) {
+            int id = server.get_id();
+            Customer customer = snapshot.serving[id];
+            if (customer != null) {
+                state.occupancy++;
+                state.serverEvents[id] = state.eventQ.add(new Event(
+                            server.resumeService(time), customer, server, Action.DONE));
+            } else if (snapshot.resting[id]) {
+                state.occupancy++;
+                state.nResting++;
+                state.serverEvents[id] = state.eventQ.add(new Event(
+                            server.restsFrom(time), server, Action.SERVER_BACK));
+            }
+        }
+
+        /** The customer who was about to arrive is replaced by a fresh draw. */
+        state.nArrivals = snapshot.nArrivals;
+        if (state.nArrivals <= state.maxArrivals) {
+            state.scheduleArrival(Customer.genArrivalAfter(state.nArrivals, time));
+        }
+        return state;
+    }
+
+    /**
+     * Returns a copy of the current state.
+     * It should only be taken between Events at different times,
+     * when no Event is due at the current time.
+     */
+    Snapshot snapshot() {
+        List<List<Customer>> waiting = new ArrayList<>();
+        for (ServerQueue queue : this.servers.get_queues()) {
+            waiting.add(queue.get_customers());
+        }
+        Customer[] serving = new Customer[this.serverEvents.length];
+        boolean[] resting = new boolean[this.serverEvents.length];
+        for (int id = 1; id < this.serverEvents.length; id++) {
+            Event pending = this.serverEvents[id];
+            if (pending == null) {
+                continue;
+            }
+            if (pending.get_action() == Action.DONE) {
+                serving[id] = pending.get_customer();
+            } else {
+                resting[id] = true;
+            }
+        }
+        return new Snapshot(this.time, this.nArrivals, this.occupancy,
+                Collections.unmodifiableList(waiting), serving, resting);
+    }
+
+    /**
+     * Schedules the arrival of a customer from outside the Scenario,
+     * who is greedy with the Scenario's probability.
+     * @param at The time of the arrival, which must not be before the last Event processed.
+     */
+    void arrive(double at) {
+        this.nExternal++;
+        boolean isGreedy = this.external.nextDouble() < this.scenario.get_probGreedy();
+        this.scheduleArrival(Customer.arrivingAt(this.maxArrivals + this.nExternal, at, isGreedy));
+    }
+
+    /** Returns the time of the next pending Event, or infinity if there is none. */
+    double get_nextTime() {
+        Event next = this.eventQ.peek();
+        return next == null ? Double.POSITIVE_INFINITY : next.get_time();
+    }
+
+    /** Schedules the arrival of a customer. */
+    private void scheduleArrival(Customer customer) {
+        this.eventQ.add(new Event(customer.get_arrivaltime(), customer, Action.ARRIVES));
+    }
+
+    /** Schedules the moment a waiting customer runs out of patience, if they ever do. */
+    private void scheduleTimeout(Customer customer, Server server, double time) {
+        double patienceRate = this.scenario.get_patienceRate();
+        if (patienceRate > 0) {
+            double giveUp = time - Math.log(this.patience.nextDouble()) / patienceRate;
+            this.timeouts.put(customer, this.eventQ.add(
+                        new Event(giveUp, customer, server, Action.RENEGES)));
+        }
+    }
+
+    /** Calls the next customer in a server's queue to be served, now. */
+    private void serveNext(Server server, double time) {
+        Customer nextCustomer = server.nextCustomer();
+        Event timeout = this.timeouts.remove(nextCustomer);
+        if (timeout != null) {
+            this.eventQ.cancel(timeout);
+        }
+        this.eventQ.add(new Event(time, nextCustomer, server, Action.SERVED));
+    }
+
+    /**
+     * Removes the next Event from the calendar and processes it,
+     * scheduling the Events that follow from it.
+     * @return The Event processed, or null if there are no more Events.
+     */
+    Event step() {
+        Event currEvent = this.eventQ.poll();
+        if (currEvent == null) {
+            return null;
+        }
+        Action currAction = currEvent.get_action();
+        double currTime = currEvent.get_time();
+        this.time = currTime;
+        this.nEvents++;
+
+        /**
+         * For SERVER_REST or SERVER_BACK,
+         * no Customer is involved in the logic.
+         * So in this case, currCustomer would be null.
+         * For LEAVES and ARRIVES, no Server is involved in the logic,
+         * so currServer would be null.
+         */
+        Customer currCustomer = currEvent.get_customer();
+        Server currServer = currEvent.get_server();
+
+        /**
+         * possible flow paths:
+         * Arrives - Served - Done
+         * Arrives - Waits - Served - Done
+         * Arrives - Leaves
+         * Arrives - Waits - Reneges
+         */
+
+        if (currAction == Action.ARRIVES) {
+            /**
+             * The next customer is drawn only when this one arrives,
+             * unless this one arrived from outside the Scenario.
+             */
+            if (currCustomer.get_id() <= this.maxArrivals && this.nArrivals < this.maxArrivals) {
+                this.nArrivals++;
+                this.scheduleArrival(Customer.genArrival(this.nArrivals));
+            }
+
+            /**
+             * When customer arrives, first thing they do is to
+             * check if there are any idle servers.
+             * If not, the RoutingPolicy picks a non-full queue.
+             * Under the default first-open policy,
+             * typical customers join the first one
+             * but greedy customers join the one with the shortest queue,
+             * breaking ties by the id of the queue's first server.
+             * If all queues are full, the customer leaves.
+             * The ServerIndex answers each of these in O(log S) time.
+             * A customer joining a shared queue waits for the
+             * server of that queue with the smallest id.
+             */
+            Server nextServer = this.servers.idleServer(currCustomer.get_arrivaltime());
+            ServerQueue nextQueue = null;
+            if (nextServer == null) {
+                nextQueue = this.routing.chooseQueue(currCustomer, currTime, this.servers);
+            }
+
+            if (nextServer != null) {
+                this.eventQ.add(new Event(currTime, currCustomer, nextServer, Action.SERVED));
+            } else if (nextQueue == null) {
+                this.eventQ.add(new Event(currTime, currCustomer, Action.LEAVES));
+            } else {
+                this.eventQ.add(new Event(currTime, currCustomer,
+                            nextQueue.get_firstServer(), Action.WAITS));
+            }
+
+        } else if (currAction == Action.SERVED) {
+            /**
+             * serve() updates the states of the Server
+             * and returns the time when service is done.
+             * serve() removes the customer from the server's queue
+             * and the server's next available time is updated.
+             * A customer served straight from the door enters the system now;
+             * one called from the queue was already in it.
+             */
+            if (currServer.get_Qlen() == 0) {
+                this.occupancy++;
+            } else {
+                this.nWaiting--;
+            }
+            double doneTime = currServer.serve(currCustomer, currTime);
+
+            this.serverEvents[currServer.get_id()] = this.eventQ.add(
+                    new Event(doneTime, currCustomer, currServer, Action.DONE));
+
+        } else if (currAction == Action.WAITS) {
+            /** Customer decides to wait and is added to Server's queue. */
+            currServer.addToQ(currCustomer);
+            this.occupancy++;
+            this.nWaiting++;
+            this.nWaited++;
+            this.scheduleTimeout(currCustomer, currServer, currTime);
+        } else if (currAction == Action.DONE) {
+            /**
+             * If the server needs to rest,
+             * a new event is scheduled with the action SERVER_REST,
+             * and the server temporarily ignores the customers
+             * waiting in the queue.
+             * If the server does not need to rest,
+             * and if there are other customers waiting,
+             * the server immediately serves the next customer in line.
+             * So the SERVED event is scheduled
+             * with the same timestamp as the current event.
+             * Otherwise, nothing is done.
+             */
+            this.serverEvents[currServer.get_id()] = null;
+            this.occupancy--;
+            if (currServer.needsToRest()) {
+                this.eventQ.add(new Event(currTime, currServer, Action.SERVER_REST));
+            } else if (currServer.get_Qlen() > 0) {
+                this.serveNext(currServer, currTime);
+            }
+        } else if (currAction == Action.RENEGES) {
+            /**
+             * The customer ran out of patience before being called,
+             * so they leave the queue, wherever they are in it.
+             */
+            this.timeouts.remove(currCustomer);
+            currServer.get_queue().remove(currCustomer);
+            this.occupancy--;
+            this.nWaiting--;
+            Event.countRenege();
+        } else if (currAction == Action.SERVER_REST) {
+            /** restsFrom() updates the variable tracking
+             * the next time th server is free and
+             * returns the time the server's rest ends.
+             * Then, a new SERVER_BACK is scheduled immediately,
+             * with the same timestamp as the current event.
+             */
+            double restEnd = currServer.restsFrom(currTime);
+            this.occupancy++;
+            this.nResting++;
+            this.serverEvents[currServer.get_id()] = this.eventQ.add(
+                    new Event(restEnd, currServer, Action.SERVER_BACK));
+        } else if (currAction == Action.SERVER_BACK) {
+            this.serverEvents[currServer.get_id()] = null;
+            this.occupancy--;
+            this.nResting--;
+            if (currServer.get_Qlen() > 0) {
+                this.serveNext(currServer, currTime);
+            }
+        }
+        return currEvent;
+    }
+
+    /** Returns the queues and Servers of every pool. */
+    ServerIndex get_servers() {
+        return this.servers;
+    }
+
+    /** Returns the RoutingPolicy of the run. */
+    RoutingPolicy get_routing() {
+        return this.routing;
+    }
+
+    /**
+     * Returns the number of places taken: one for each customer being served
+     * or waiting, and one for each resting server, which holds its place at the
+     * counter as if it were serving. Customers balk exactly when every place
+     * is taken, that is, when this reaches the capacity of the ServerIndex.
+     */
+    int get_occupancy() {
+        return this.occupancy;
+    }
+
+    /** Returns the number of customers generated so far, including the one yet to arrive. */
+    int get_nArrivals() {
+        return this.nArrivals;
+    }
+
+    /** Returns the number of customers waiting in a queue now. */
+    int get_nWaiting() {
+        return this.nWaiting;
+    }
+
+    /** Returns the number of servers resting now. */
+    int get_nResting() {
+        return this.nResting;
+    }
+
+    /** Returns the number of customers that had to wait in a queue. */
+    int get_nWaited() {
+        return this.nWaited;
+    }
+
+    /** Returns the number of Events processed so far. */
+    long get_nEvents() {
+        return this.nEvents;
+    }
+
+    /** Returns the time of the last Event processed. */
+    double get_time() {
+        return this.time;
+    }
+}
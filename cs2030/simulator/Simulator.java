@@ -0,0 +1,237 @@
+package cs2030.simulator;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Runs the discrete event simulation described by a Scenario.
+ * The Scenario is validated once when it is built, so a Simulator
+ * can be constructed once and run as many times as needed.
+ * Every run starts from a fresh set of Servers and Customers,
+ * and resets the statistics tracked by the Event class.
+ * The random generators and statistics are kept per thread, so runs on
+ * different threads, of the same Simulator or of different ones, can go on
+ * at once; a run stops early if the thread running it is interrupted.
+ * EventListeners can subscribe to records of the Events of every run,
+ * instead of parsing the printed trace. When nobody has subscribed,
+ * the event loop does no work on their behalf.
+ * A listener is told when each run completes, and stays subscribed
+ * to the runs that follow until its Subscription is cancelled.
+ * For runs too long to trace, the Scenario can ask for a Summary row
+ * per interval of simulated time instead.
+ * A run can also be fed live arrivals through an ArrivalRing, paced so that
+ * simulated time keeps step with the wall clock.
+ */
+public class Simulator {
+    /** The default number of Events delivered to a listener at a time. */
+    public static final int DEFAULT_BATCH = 1024;
+
+    /** The configuration that every run of this Simulator uses. */
+    private final Scenario scenario;
+
+    /** The listeners that receive the Events of every run; cancelled from any thread. */
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructor returns a Simulator for the given Scenario.
+     * @param scenario The validated configuration to simulate.
+     */
+    public Simulator(Scenario scenario) {
+        this.scenario = scenario;
+    }
+
+    /**
+     * Subscribes a listener to every Event of every run,
+     * delivered in batches of DEFAULT_BATCH Events.
+     * @param listener The listener to subscribe.
+     * @return The Subscription, which unsubscribes the listener when cancelled.
+     */
+    public Subscription subscribe(EventListener listener) {
+        return this.subscribe(listener, EventFilter.all(), DEFAULT_BATCH);
+    }
+
+    /**
+     * Subscribes a listener to the Events of every run that pass a filter.
+     * Cancelled Events are never delivered.
+     * @param listener The listener to subscribe.
+     * @param filter Selects the Events to deliver.
+     * @param batchSize The number of Events delivered at a time;
+     * the last batch of a run may be smaller.
+     * @return The Subscription, which unsubscribes the listener when cancelled.
+     */
+    public Subscription subscribe(EventListener listener, EventFilter filter, int batchSize) {
+        Subscription subscription = new Subscription(listener, filter, batchSize,
+                this.subscriptions);
+        this.subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /** Returns the Scenario that this Simulator runs. */
+    public Scenario get_scenario() {
+        return this.scenario;
+    }
+
+    /** converts a double to a String representation with 3 decimal places. */
+    public static String fdouble(double d) {
+        return String.format("%.3f", d);
+    }
+
+    /**
+     * Runs the simulation once.
+     * If the Scenario asks for a trace, every Event involving a Customer
+     * is printed as it happens. The statistics of the run are always
+     * printed last, in the form [avgWait nServed nNotServed].
+     * If the Scenario asks for a summary, its rows are written to the
+     * summary file, or to out before the statistics.
+     * @param out The stream to print the output of the run to.
+     * @return The statistics of the run.
+     * @throws UncheckedIOException if the summary file cannot be written.
+     * @throws CancellationException if the thread is interrupted during the run.
+     */
+    public Statistics run(PrintStream out) {
+        return this.run(out, null);
+    }
+
+    /**
+     * Runs the simulation once, live: alongside the customers that the Scenario
+     * generates, customers arrive whenever a producer offers them to the ring.
+     * Each Event is processed once the clock of the ring reaches its time,
+     * so that the run keeps pace with the wall clock, scaled by live.speed;
+     * a run that falls behind catches up as fast as it can.
+     * The run ends once the ring is closed and every Event is done.
+     * The output is the same as that of run().
+     * @param out The stream to print the output of the run to.
+     * @param ring The live arrivals, drained only by the thread calling this.
+     * @return The statistics of the run.
+     * @throws IllegalStateException if the ring has already fed a run.
+     * @throws UncheckedIOException if the summary file cannot be written.
+     * @throws CancellationException if the thread is interrupted during the run.
+     */
+    public Statistics runLive(PrintStream out, ArrivalRing ring) {
+        ring.start(this.scenario.get_liveSpeed());
+        return this.run(out, ring);
+    }
+
+    /**
+     * Runs the simulation once, fed by a ring if it is not null.
+     * @param out The stream to print the output of the run to.
+     * @param ring The live arrivals, or null.
+     */
+    private Statistics run(PrintStream out, ArrivalRing ring) {
+        Scenario sc = this.scenario;
+        Event.resetStats();
+        SimulationState state = SimulationState.start(sc);
+        Subscription[] subscribers = this.subscriptions.toArray(new Subscription[0]);
+        Writer summaryOut = null;
+        Summary summary = null;
+        if (sc.get_summaryInterval() > 0) {
+            /**
+             * Rows written to out are flushed one at a time when the run is traced,
+             * so that they appear among the trace lines of their interval.
+             */
+            boolean toOut = sc.get_summaryFile() == null;
+            try {
+                summaryOut = toOut
+                    ? new BufferedWriter(new OutputStreamWriter(out))
+                    : Files.newBufferedWriter(Path.of(sc.get_summaryFile()));
+            } catch (IOException e) {
+                throw new UncheckedIOException("cannot open summary file "
+                        + sc.get_summaryFile(), e);
+            }
+            summary = new Summary(summaryOut, toOut && sc.get_trace(),
+                    sc.get_summaryInterval(), state.get_servers().get_servers().size());
+        }
+
+        /** loop through queue of Events. */
+        Event currEvent;
+        while ((currEvent = ring == null ? state.step() : nextLive(state, ring)) != null) {
+            checkInterrupted();
+            if (subscribers.length > 0) {
+                for (Subscription subscriber : subscribers) {
+                    subscriber.publish(currEvent);
+                }
+            }
+            if (summary != null) {
+                summary.record(currEvent, state);
+            }
+
+            /** No Customer is involved in SERVER_REST or SERVER_BACK, so they are not printed. */
+            Action currAction = currEvent.get_action();
+            if (sc.get_trace() && currAction != Action.SERVER_REST
+                    && currAction != Action.SERVER_BACK) {
+                out.println(currEvent.toString());
+            }
+        }
+        if (summary != null) {
+            summary.finish(state.get_time());
+            if (sc.get_summaryFile() != null) {
+                try {
+                    summaryOut.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("cannot write summary file "
+                            + sc.get_summaryFile(), e);
+                }
+            }
+        }
+
+        /** Prints system statistics. */
+        Statistics stats = new Statistics(state.get_routing().get_name(), Event.get_avgWait(),
+                Event.get_nServed(), Event.get_nNotServed(), state.get_nWaited(),
+                Event.get_nReneged(), state.get_time(), state.get_nEvents());
+        out.println(stats);
+        for (Subscription subscriber : subscribers) {
+            subscriber.complete(stats);
+        }
+        return stats;
+    }
+
+    /**
+     * Waits for the next Event of a live run to be due, and processes it.
+     * Arrivals are drained from the ring before every Event, so each one
+     * joins the calendar in time order. One whose time has already passed
+     * is counted as late, and arrives at the time of the last Event instead.
+     * @return The Event processed, or null once the ring is closed and every Event is done.
+     */
+    private static Event nextLive(SimulationState state, ArrivalRing ring) {
+        while (true) {
+            checkInterrupted();
+            /** Checked before draining, so that no arrival offered before closing is missed. */
+            boolean closed = ring.isClosed();
+            for (double at = ring.poll(); !Double.isNaN(at); at = ring.poll()) {
+                if (at < state.get_time()) {
+                    ring.countLate();
+                    at = state.get_time();
+                }
+                state.arrive(at);
+            }
+            double next = state.get_nextTime();
+            if (next == Double.POSITIVE_INFINITY) {
+                if (closed) {
+                    return null;
+                }
+            } else if (next <= ring.now()) {
+                return state.step();
+            }
+            ring.pauseUntil(next);
+        }
+    }
+
+    /**
+     * Stops the run if the thread running it has been interrupted.
+     * The interrupt is left set, for the caller to see.
+     * @throws CancellationException if the thread has been interrupted.
+     */
+    private static void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("the run was interrupted");
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package cs2030.simulator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Estimates how often customers balk, finding every queue full,
+ * by fixed-effort importance splitting instead of brute force.
+ * When balking is rare, a plain run sees it a handful of times,
+ * if at all, and its estimate of nNotServed is mostly noise.
+ *
+ * <p>The importance function is the number of places taken in the system:
+ * one for each customer being served or waiting, and one for each resting
+ * server, which blocks its counter just as a customer would.
+ * Customers balk exactly when all K places are taken, K being the capacity
+ * of the system. With thresholds l1 &lt; l2 &lt; ... &lt; K, an excursion starts
+ * whenever the number of places taken rises to l1, and ends when it drops
+ * below l1 again. Every balk happens during an excursion that reached K, so</p>
+ *
+ * <pre>
+ * P(balk) = (excursions per arrival)
+ *         x P(l2 | l1) x P(l3 | l2) x ... x P(K | l(m-1))
+ *         x (balks per excursion, after reaching K)
+ * </pre>
+ *
+ * where P(l(k+1) | lk) is the probability that an excursion that reached lk
+ * goes on to reach l(k+1). Each factor is far from 0, so each can be
+ * estimated precisely with a modest number of runs:
+ * <ol>
+ * <li>a plain run of the Scenario counts excursions per arrival,
+ * and keeps a sample of the states in which they started;</li>
+ * <li>for each threshold in turn, splitting.effort runs are restored from
+ * the states kept at that threshold, and run until the number of places taken
+ * reaches the next threshold, whose states are kept, or drops below l1;</li>
+ * <li>runs restored from the states at K count their balks until the
+ * number of places taken drops below l1.</li>
+ * </ol>
+ * Restored runs draw new random streams, which is sound because every random
+ * time in the model is exponential; see SimulationState.
+ * Each restored run may admit at most customers.count more customers, and
+ * one that reaches that limit is ended as if its excursion were over.
+ * Splitting is immutable, and is computed when it is created.
+ */
+public class Splitting {
+    /** The number of thresholds between the first one and K chosen by default. */
+    static final int DEFAULT_LEVELS = 8;
+
+    /** The thresholds, ending with the capacity of the system, K. */
+    private final int[] levels;
+
+    /** The number of excursions seen by the plain run. */
+    private final long nExcursions;
+
+    /** The number of excursions per arrival in the plain run. */
+    private final double excursionRate;
+
+    /** The estimated probability of reaching each threshold from the one below it. */
+    private final double[] levelProbs;
+
+    /** The mean number of balks per excursion, once it has reached K. */
+    private final double balksPerTop;
+
+    /** The estimated probability that an arriving customer balks. */
+    private final double probBalk;
+
+    /** The estimated relative error of probBalk. */
+    private final double relativeError;
+
+    /** The fraction of customers who balked in the plain run. */
+    private final double directProbBalk;
+
+    /** The number of Events processed, over the plain run and every restored run. */
+    private final long nEvents;
+
+    /** The number of customers the Scenario simulates. */
+    private final int nCustomers;
+
+    /** Private constructor that returns a new Splitting estimate. */
+    private Splitting(int[] levels, long nExcursions, double excursionRate,
+            double[] levelProbs, double balksPerTop, double probBalk, double relativeError,
+            double directProbBalk, long nEvents, int nCustomers) {
+        this.levels = levels;
+        this.nExcursions = nExcursions;
+        this.excursionRate = excursionRate;
+        this.levelProbs = levelProbs;
+        this.balksPerTop = balksPerTop;
+        this.probBalk = probBalk;
+        this.relativeError = relativeError;
+        this.directProbBalk = directProbBalk;
+        this.nEvents = nEvents;
+        this.nCustomers = nCustomers;
+    }
+
+    /**
+     * Static factory method that estimates the probability that a customer
+     * of the Scenario balks, using the thresholds and effort it configures.
+     * @param sc The Scenario to estimate.
+     * @throws IllegalArgumentException if a threshold is not below the capacity of the system.
+     */
+    public static Splitting of(Scenario sc) {
+        int effort = sc.get_splitEffort();
+        Random master = new Random(sc.get_seed() + 7);
+        Event.resetStats();
+
+        /** The plain run. */
+        SimulationState state = SimulationState.start(sc);
+        int[] levels = levels(sc, state.get_servers());
+        int first = levels[0];
+        if (levels[levels.length - 1] == 0) {
+            return new Splitting(levels, 0, 0, new double[0], 0, 1, 0, 1, 0, sc.get_nCustomers());
+        }
+        List<SimulationState.Snapshot> entries = new ArrayList<>();
+        long nExcursions = 0;
+        long nArrived = 0;
+        long nBalked = 0;
+        int prev = 0;
+        Event event;
+        while ((event = state.step()) != null) {
+            if (event.get_action() == Action.ARRIVES) {
+                nArrived++;
+            } else if (event.get_action() == Action.LEAVES) {
+                nBalked++;
+            }
+            int n = state.get_occupancy();
+            if (n >= first && prev < first) {
+                /** Reservoir sampling keeps a uniform sample of at most effort states. */
+                nExcursions++;
+                if (entries.size() < effort) {
+                    entries.add(state.snapshot());
+                } else {
+                    long slot = (long) (master.nextDouble() * nExcursions);
+                    if (slot < effort) {
+                        entries.set((int) slot, state.snapshot());
+                    }
+                }
+            }
+            prev = n;
+        }
+        long nEvents = state.get_nEvents();
+        double excursionRate = nArrived > 0 ? (double) nExcursions / nArrived : 0;
+        double directProbBalk = nArrived > 0 ? (double) nBalked / nArrived : 0;
+
+        /** Splitting, one threshold at a time. */
+        double[] levelProbs = new double[levels.length - 1];
+        double product = excursionRate;
+        double relativeVariance = nExcursions > 0 ? 1.0 / nExcursions : 0;
+        for (int k = 1; k < levels.length && !entries.isEmpty(); k++) {
+            List<SimulationState.Snapshot> reached = new ArrayList<>();
+            for (int j = 0; j < effort; j++) {
+                SimulationState run = SimulationState.restore(sc,
+                        entries.get(j % entries.size()), master.nextInt(), sc.get_nCustomers());
+                while (run.step() != null) {
+                    int n = run.get_occupancy();
+                    if (n >= levels[k]) {
+                        reached.add(run.snapshot());
+                        break;
+                    } else if (n < first) {
+                        break;
+                    }
+                }
+                nEvents += run.get_nEvents();
+            }
+            double p = (double) reached.size() / effort;
+            levelProbs[k - 1] = p;
+            product *= p;
+            relativeVariance += p > 0 ? (1 - p) / (p * effort) : 0;
+            entries = reached;
+        }
+
+        /** Balks per excursion, from the states in which excursions reached K. */
+        double balksPerTop = 0;
+        if (!entries.isEmpty()) {
+            double sum = 0;
+            double sumSquares = 0;
+            for (int j = 0; j < effort; j++) {
+                SimulationState run = SimulationState.restore(sc,
+                        entries.get(j % entries.size()), master.nextInt(), sc.get_nCustomers());
+                long balks = 0;
+                while ((event = run.step()) != null) {
+                    if (event.get_action() == Action.LEAVES) {
+                        balks++;
+                    } else if (run.get_occupancy() < first) {
+                        break;
+                    }
+                }
+                sum += balks;
+                sumSquares += (double) balks * balks;
+                nEvents += run.get_nEvents();
+            }
+            balksPerTop = sum / effort;
+            double variance = Math.max(sumSquares / effort - balksPerTop * balksPerTop, 0);
+            relativeVariance += balksPerTop > 0
+                ? variance / (balksPerTop * balksPerTop * effort)
+                : 0;
+        }
+
+        double probBalk = product * balksPerTop;
+        double relativeError = probBalk > 0 ? Math.sqrt(relativeVariance) : Double.POSITIVE_INFINITY;
+        return new Splitting(levels, nExcursions, excursionRate, levelProbs, balksPerTop,
+                probBalk, relativeError, directProbBalk, nEvents, sc.get_nCustomers());
+    }
+
+    /**
+     * Returns the thresholds of the Scenario, ending with the capacity K.
+     * By default, the first threshold is the number of servers, at which
+     * customers start to queue, and DEFAULT_LEVELS more are spread evenly up to K.
+     */
+    private static int[] levels(Scenario sc, ServerIndex servers) {
+        long capacity = servers.get_capacity();
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("the capacity of the system, "
+                    + capacity + ", is too large to split on");
+        }
+        int K = (int) capacity;
+        List<Integer> levels = new ArrayList<>();
+        if (!sc.get_splitLevels().isEmpty()) {
+            for (int level : sc.get_splitLevels()) {
+                if (level >= K) {
+                    throw new IllegalArgumentException("splitting.levels must be below "
+                            + "the capacity of the system, " + K + ", not " + level);
+                }
+                levels.add(level);
+            }
+        } else {
+            int c = Math.max(servers.get_servers().size(), 1);
+            for (int j = 0; j < DEFAULT_LEVELS && c < K; j++) {
+                int level = c + (int) ((long) j * (K - c) / DEFAULT_LEVELS);
+                if (levels.isEmpty() || level > levels.get(levels.size() - 1)) {
+                    levels.add(level);
+                }
+            }
+        }
+        levels.add(K);
+        return levels.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /** Returns the thresholds, ending with the capacity of the system, K. */
+    public int[] get_levels() {
+        return this.levels.clone();
+    }
+
+    /** Returns the number of excursions seen by the plain run. */
+    public long get_nExcursions() {
+        return this.nExcursions;
+    }
+
+    /** Returns the number of excursions per arrival in the plain run. */
+    public double get_excursionRate() {
+        return this.excursionRate;
+    }
+
+    /**
+     * Returns the estimated probability of reaching each threshold from the one below it;
+     * element k is the probability of reaching threshold k + 1 from threshold k.
+     */
+    public double[] get_levelProbs() {
+        return this.levelProbs.clone();
+    }
+
+    /** Returns the mean number of balks per excursion, once it has reached K. */
+    public double get_balksPerTop() {
+        return this.balksPerTop;
+    }
+
+    /** Returns the estimated probability that an arriving customer balks. */
+    public double get_probBalk() {
+        return this.probBalk;
+    }
+
+    /**
+     * Returns the estimated relative error of the probability of balking, one standard
+     * deviation over the mean, treating the stages as independent; infinite if no
+     * excursion ever reached K.
+     */
+    public double get_relativeError() {
+        return this.relativeError;
+    }
+
+    /** Returns the fraction of customers who balked in the plain run, for comparison. */
+    public double get_directProbBalk() {
+        return this.directProbBalk;
+    }
+
+    /** Returns the expected number of customers of the Scenario's run who balk. */
+    public double get_nNotServed() {
+        return this.nCustomers * this.probBalk;
+    }
+
+    /** Returns the number of Events processed, over the plain run and every restored run. */
+    public long get_nEvents() {
+        return this.nEvents;
+    }
+}
@@ -0,0 +1,119 @@
+package cs2030.simulator;
+
+/**
+ * Summarises the outcome of one run of the Simulator.
+ * Statistics is immutable, so runs can be kept and compared
+ * after the class-level counters in Event have been reset.
+ */
+public class Statistics {
+    /** The name of the routing policy used in the run. */
+    private final String routing;
+
+    /** The average time spent waiting by Customers that received service. */
+    private final double avgWait;
+
+    /** The number of Customers that received service. */
+    private final int nServed;
+
+    /** The number of Customers that left without receiving service. */
+    private final int nNotServed;
+
+    /** The number of Customers that had to wait in a queue. */
+    private final int nWaited;
+
+    /** The number of Customers that left a queue before being served. */
+    private final int nReneged;
+
+    /** The time of the last Event in the run. */
+    private final double endTime;
+
+    /** The number of Events processed in the run, not counting cancelled ones. */
+    private final long nEvents;
+
+    /**
+     * Constructor returns the Statistics of a run.
+     * @param routing The name of the routing policy used.
+     * @param avgWait The average time spent waiting by Customers that received service.
+     * @param nServed The number of Customers that received service.
+     * @param nNotServed The number of Customers that left without receiving service.
+     * @param nWaited The number of Customers that had to wait in a queue.
+     * @param nReneged The number of Customers that left a queue before being served.
+     * @param endTime The time of the last Event in the run.
+     * @param nEvents The number of Events processed in the run.
+     */
+    public Statistics(String routing, double avgWait, int nServed,
+            int nNotServed, int nWaited, int nReneged, double endTime, long nEvents) {
+        this.routing = routing;
+        this.avgWait = avgWait;
+        this.nServed = nServed;
+        this.nNotServed = nNotServed;
+        this.nWaited = nWaited;
+        this.nReneged = nReneged;
+        this.endTime = endTime;
+        this.nEvents = nEvents;
+    }
+
+    /** Returns the name of the routing policy used in the run. */
+    public String get_routing() {
+        return this.routing;
+    }
+
+    /** Returns the average time spent waiting by Customers that received service. */
+    public double get_avgWait() {
+        return this.avgWait;
+    }
+
+    /** Returns the number of Customers that received service. */
+    public int get_nServed() {
+        return this.nServed;
+    }
+
+    /** Returns the number of Customers that left without receiving service. */
+    public int get_nNotServed() {
+        return this.nNotServed;
+    }
+
+    /** Returns the number of Customers that had to wait in a queue. */
+    public int get_nWaited() {
+        return this.nWaited;
+    }
+
+    /** 
+     * Returns the number of Customers that left a queue before being served.
+     * These are included in the number of Customers not served.
+     */
+    public int get_nReneged() {
+        return this.nReneged;
+    }
+
+    /** Returns the time of the last Event in the run. */
+    public double get_endTime() {
+        return this.endTime;
+    }
+
+    /** Returns the number of Events processed in the run, not counting cancelled ones. */
+    public long get_nEvents() {
+        return this.nEvents;
+    }
+
+    /** Returns the number of Customers served per unit of simulated time. */
+    public double get_throughput() {
+        return this.endTime > 0 ? this.nServed / this.endTime : 0;
+    }
+
+    /** 
+     * Returns the fraction of arriving Customers that left straight away
+     * because every queue was full. Customers who reneged are not included.
+     */
+    public double get_balkRate() {
+        int nArrived = this.nServed + this.nNotServed;
+        return nArrived > 0 ? (double) (this.nNotServed - this.nReneged) / nArrived : 0;
+    }
+
+    /** Returns the statistics in the form printed at the end of every run. */
+    @Override
+    public String toString() {
+        return "[" + Simulator.fdouble(this.avgWait) + " "
+            + this.nServed + " " + this.nNotServed + "]";
+    }
+}
@@ -0,0 +1,94 @@
+package cs2030.simulator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Pairs an EventListener with its EventFilter, and collects records of
+ * the Events that pass the filter until there are enough to deliver as one batch.
+ * Simulator.subscribe returns the Subscription, as the handle with which
+ * the listener can later be unsubscribed.
+ */
+public class Subscription {
+    /** The listener that receives the batches. */
+    private final EventListener listener;
+
+    /** Selects which Events are collected. */
+    private final EventFilter filter;
+
+    /** The number of Events delivered in each full batch. */
+    private final int batchSize;
+
+    /** The subscriptions of the Simulator, which this one is removed from when cancelled. */
+    private final Collection<Subscription> owner;
+
+    /** The records collected since the last batch was delivered. */
+    private List<EventRecord> batch;
+
+    /** Whether the listener has been unsubscribed; it may be cancelled from any thread. */
+    private volatile boolean cancelled = false;
+
+    /**
+     * Constructor returns a new Subscription.
+     * @param listener The listener that receives the batches.
+     * @param filter Selects which Events are collected.
+     * @param batchSize The number of Events delivered in each full batch.
+     * @param owner The subscriptions of the Simulator.
+     */
+    Subscription(EventListener listener, EventFilter filter, int batchSize,
+            Collection<Subscription> owner) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batch size must be at least 1");
+        }
+        this.listener = listener;
+        this.filter = filter;
+        this.batchSize = batchSize;
+        this.owner = owner;
+        this.batch = new ArrayList<>(batchSize);
+    }
+
+    /**
+     * Unsubscribes the listener. It receives nothing more, not even the
+     * Events already collected or the end of a run under way, and is not
+     * subscribed to later runs. Cancelling more than once has no effect.
+     */
+    public void cancel() {
+        this.cancelled = true;
+        this.owner.remove(this);
+    }
+
+    /** Checks if the listener has been unsubscribed. */
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    /** Collects a record of the Event if it passes the filter, delivering a batch once it is full. */
+    void publish(Event event) {
+        if (!this.cancelled && this.filter.test(event)) {
+            this.batch.add(EventRecord.of(event));
+            if (this.batch.size() >= this.batchSize) {
+                this.flush();
+            }
+        }
+    }
+
+    /** Delivers the records collected so far, if there are any. */
+    void flush() {
+        if (!this.batch.isEmpty()) {
+            List<EventRecord> full = Collections.unmodifiableList(this.batch);
+            this.batch = new ArrayList<>(this.batchSize);
+            if (!this.cancelled) {
+                this.listener.onEvents(full);
+            }
+        }
+    }
+
+    /** Delivers the last batch, then tells the listener the run is over. */
+    void complete(Statistics stats) {
+        this.flush();
+        if (!this.cancelled) {
+            this.listener.onComplete(stats);
+        }
+    }
+}
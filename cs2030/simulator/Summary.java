@@ -0,0 +1,180 @@
+package cs2030.simulator;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Aggregates the Events of a run into one summary row per interval
+ * of simulated time, as the run goes, so that a run too long to trace
+ * still produces a time series of its behaviour.
+ * Each row covers [start, start + interval) and gives:
+ * <ul>
+ * <li>the number of customers that arrived, were served, and left unserved,
+ * whether they balked or reneged;</li>
+ * <li>the mean and maximum wait of the customers served;</li>
+ * <li>the time-averaged number of customers waiting per server;</li>
+ * <li>the time-averaged fraction of servers resting.</li>
+ * </ul>
+ * Only the current row is kept, so memory does not grow with the length
+ * of the run, and rows are written as soon as their interval is over.
+ * Intervals in which nothing happened still get a row, so rows are evenly spaced.
+ */
+class Summary {
+    /** The first line written, naming the columns. */
+    static final String HEADER = "# start arrivals served left avgWait maxWait avgQlen resting";
+
+    /** Where the rows are written. */
+    private final Writer out;
+
+    /** Whether to flush after every row, to keep rows in order with other output. */
+    private final boolean flushEachRow;
+
+    /** The length of each interval, in simulated time. */
+    private final double interval;
+
+    /** The number of servers, which the queue length and resting fraction are divided by. */
+    private final int nServers;
+
+    /** The number of the current interval, counting from 0. */
+    private long bucket = 0;
+
+    /** The time up to which the time averages have been accumulated. */
+    private double lastTime = 0;
+
+    /** The number of customers waiting since lastTime. */
+    private int nWaiting = 0;
+
+    /** The number of servers resting since lastTime. */
+    private int nResting = 0;
+
+    /** The number of customers that arrived in the current interval. */
+    private long nArrived = 0;
+
+    /** The number of customers served in the current interval. */
+    private long nServed = 0;
+
+    /** The number of customers that balked or reneged in the current interval. */
+    private long nLeft = 0;
+
+    /** The total wait of the customers served in the current interval. */
+    private double totalWait = 0;
+
+    /** The longest wait of a customer served in the current interval. */
+    private double maxWait = 0;
+
+    /** The integral of the number of customers waiting over the current interval. */
+    private double waitingArea = 0;
+
+    /** The integral of the number of servers resting over the current interval. */
+    private double restingArea = 0;
+
+    /**
+     * Constructor returns a Summary that writes its header straight away.
+     * @param out Where the rows are written.
+     * @param flushEachRow Whether to flush after every row.
+     * @param interval The length of each interval, in simulated time.
+     * @param nServers The number of servers in the system.
+     */
+    Summary(Writer out, boolean flushEachRow, double interval, int nServers) {
+        this.out = out;
+        this.flushEachRow = flushEachRow;
+        this.interval = interval;
+        this.nServers = nServers;
+        this.write(HEADER);
+    }
+
+    /**
+     * Accounts for an Event that has just been processed.
+     * The state has already changed at the time of the Event,
+     * so the time averages up to then use the values seen at the previous Event.
+     * @param event The Event processed.
+     * @param state The state of the run after the Event.
+     */
+    void record(Event event, SimulationState state) {
+        this.advance(event.get_time());
+        Action action = event.get_action();
+        if (action == Action.ARRIVES) {
+            this.nArrived++;
+        } else if (action == Action.SERVED) {
+            double wait = event.get_time() - event.get_customer().get_arrivaltime();
+            this.nServed++;
+            this.totalWait += wait;
+            this.maxWait = Math.max(this.maxWait, wait);
+        } else if (action == Action.LEAVES || action == Action.RENEGES) {
+            this.nLeft++;
+        }
+        this.nWaiting = state.get_nWaiting();
+        this.nResting = state.get_nResting();
+    }
+
+    /**
+     * Writes the last, possibly partial, row and flushes the output.
+     * @param endTime The time of the last Event of the run.
+     */
+    void finish(double endTime) {
+        this.advance(endTime);
+        if (endTime > this.bucket * this.interval || this.nArrived + this.nServed + this.nLeft > 0) {
+            this.writeRow(endTime);
+        }
+        try {
+            this.out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot write summary", e);
+        }
+    }
+
+    /** Accumulates the time averages up to the given time, writing every interval that ends before it. */
+    private void advance(double time) {
+        double end = (this.bucket + 1) * this.interval;
+        while (time >= end) {
+            this.accumulate(end);
+            this.writeRow(end);
+            this.bucket++;
+            end = (this.bucket + 1) * this.interval;
+        }
+        this.accumulate(time);
+    }
+
+    /** Adds the time from lastTime to the given time to the time averages. */
+    private void accumulate(double time) {
+        double span = time - this.lastTime;
+        this.waitingArea += this.nWaiting * span;
+        this.restingArea += this.nResting * span;
+        this.lastTime = time;
+    }
+
+    /** Writes the row of the current interval, which ends at the given time, and clears it. */
+    private void writeRow(double end) {
+        double start = this.bucket * this.interval;
+        double length = end - start;
+        double perServer = this.nServers > 0 && length > 0 ? 1.0 / (this.nServers * length) : 0;
+        this.write(Simulator.fdouble(start)
+                + " " + this.nArrived
+                + " " + this.nServed
+                + " " + this.nLeft
+                + " " + Simulator.fdouble(this.nServed > 0 ? this.totalWait / this.nServed : 0)
+                + " " + Simulator.fdouble(this.maxWait)
+                + " " + Simulator.fdouble(this.waitingArea * perServer)
+                + " " + Simulator.fdouble(this.restingArea * perServer));
+        this.nArrived = 0;
+        this.nServed = 0;
+        this.nLeft = 0;
+        this.totalWait = 0;
+        this.maxWait = 0;
+        this.waitingArea = 0;
+        this.restingArea = 0;
+    }
+
+    /** Writes one line. */
+    private void write(String line) {
+        try {
+            this.out.write(line);
+            this.out.write('\n');
+            if (this.flushEachRow) {
+                this.out.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot write summary", e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+#!/bin/bash
+# Builds build/simulator.jar and an AppCDS archive for it, build/simulator.jsa.
+#
+# The archive holds the pre-parsed classes loaded by a few training runs,
+# so short runs skip most class loading and verification:
+#
+#   java -XX:SharedArchiveFile=build/simulator.jsa -jar build/simulator.jar < test.in
+#
+# CDS only archives classes loaded from jar files, which is why the
+# classes are packaged first. The archive is only valid for the JDK that
+# built it, and for this exact jar, so rebuild after changing either.
+#
+# If GraalVM's native-image is on the PATH, build/simulator-native is also built.
+set -e
+cd "$(dirname "$0")/.."
+
+rm -rf build/classes
+mkdir -p build/classes/cs2030/simulator
+# RandomGenerator is only distributed as a class file.
+cp cs2030/simulator/RandomGenerator.class build/classes/cs2030/simulator/
+# Plain StringBuilder concatenation avoids bootstrapping StringConcatFactory,
+# which spins dozens of hidden classes that CDS cannot archive, on every launch.
+javac -XDstringConcat=inline -d build/classes -cp build/classes Main.java Daemon.java Client.java cs2030/simulator/*.java
+jar --create --file build/simulator.jar --main-class Main -C build/classes .
+
+# A dynamic archive records the classes loaded by one training run,
+# so train on the positional input that short runs like test1.in use.
+rm -f build/simulator.jsa
+echo "1 2 1 2 20 1.0 1.0 0.1 0.5 0.9" \
+    | java -XX:ArchiveClassesAtExit=build/simulator.jsa -jar build/simulator.jar > /dev/null
+echo "built build/simulator.jar and build/simulator.jsa"
+
+if command -v native-image > /dev/null; then
+    native-image --no-fallback -cp build/classes -o build/simulator-native Main
+    echo "built build/simulator-native"
+fi
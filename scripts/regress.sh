@@ -0,0 +1,17 @@
+#!/bin/bash
+# Compiles the simulator and checks it against the golden traces
+# and baseline throughput in regression/, failing if either regressed.
+#
+#   scripts/regress.sh [check|record|record-perf] [--threshold F] [--no-perf]
+#   scripts/regress.sh live    # the ArrivalRing, with in-process producers
+#
+# Run "record" only after a deliberate change in behaviour, and commit
+# the new golden traces together with the change that explains them.
+set -e
+cd "$(dirname "$0")/.."
+rm -rf build/regress
+mkdir -p build/regress/cs2030/simulator
+# RandomGenerator is only distributed as a class file.
+cp cs2030/simulator/RandomGenerator.class build/regress/cs2030/simulator/
+javac -d build/regress -cp build/regress *.java cs2030/simulator/*.java
+exec java -cp build/regress Regress "${@:-check}"
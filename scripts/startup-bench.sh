@@ -0,0 +1,60 @@
+#!/bin/bash
+# Compares the startup of short runs with and without the AppCDS archive
+# built by scripts/build-cds.sh, and checks that the output is identical.
+#
+#   scripts/startup-bench.sh [runs] [input]
+#
+# For each configuration, reports the median time from launching the JVM
+# to the first line of output, and to the end of the run, in milliseconds.
+set -e
+cd "$(dirname "$0")/.."
+runs=${1:-20}
+input=${2:-"1 2 1 2 20 1.0 1.0 0.1 0.5 0.9"}
+
+if [ ! -f build/simulator.jsa ]; then
+    echo "build/simulator.jsa is missing: run scripts/build-cds.sh first" >&2
+    exit 1
+fi
+
+configs=(
+    "jit|-Xshare:auto"
+    "cds|-XX:SharedArchiveFile=build/simulator.jsa"
+    "cds+c1|-XX:SharedArchiveFile=build/simulator.jsa -XX:TieredStopAtLevel=1 -XX:+UseSerialGC"
+)
+
+now() {
+    date +%s%N
+}
+
+median() {
+    sort -n | awk '{ a[NR] = $1 } END { print a[int((NR + 1) / 2)] }'
+}
+
+expected=$(echo "$input" | java -jar build/simulator.jar)
+printf "%-8s %12s %12s %s\n" config first-ms total-ms output
+for config in "${configs[@]}"; do
+    name=${config%%|*}
+    flags=${config#*|}
+    firsts=()
+    totals=()
+    for ((i = 0; i < runs; i++)); do
+        start=$(now)
+        first=""
+        while IFS= read -r line; do
+            if [ -z "$first" ]; then
+                first=$(now)
+            fi
+        done < <(echo "$input" | java $flags -jar build/simulator.jar)
+        end=$(now)
+        firsts+=($(( (first - start) / 1000000 )))
+        totals+=($(( (end - start) / 1000000 )))
+    done
+    actual=$(echo "$input" | java $flags -jar build/simulator.jar)
+    if [ "$actual" = "$expected" ]; then same=identical; else same=DIFFERENT; fi
+    printf "%-8s %12s %12s %s\n" "$name" \
+        "$(printf "%s\n" "${firsts[@]}" | median)" \
+        "$(printf "%s\n" "${totals[@]}" | median)" "$same"
+    if [ "$same" != identical ]; then
+        exit 1
+    fi
+done